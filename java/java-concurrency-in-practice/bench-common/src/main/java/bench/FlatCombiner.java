@@ -0,0 +1,146 @@
+package bench;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+// Flat combining (Hendler, Incze, Shavit & Tzafrir) - runs operations on a sequential structure without every thread
+// taking the lock itself. A thread posts its operation to its own publication record & whichever thread gets the
+// combiner lock runs all posted operations in one pass, so the structure & the lock stay in that thread's cache.
+//
+// Operations run on the combiner's thread & must not block - a blocking operation would stall everyone else's.
+public class FlatCombiner<S> {
+    // records which haven't posted anything for this many passes are unlinked, so that threads which stopped
+    // using the combiner (e.g. short-lived virtual threads) don't make every pass longer
+    private static final int MAX_IDLE_PASSES = 64;
+    private static final int MAX_PASSES = 2;
+    private static final int SPINS = 64;
+
+    private final S structure;
+    private final AtomicBoolean combining = new AtomicBoolean();
+    private final AtomicReference<Record> head = new AtomicReference<>();
+    private final ThreadLocal<Record> records = ThreadLocal.withInitial(Record::new);
+
+    // guarded by combining
+    private long passesCnt;
+    private long combinesCnt;
+    private long combinedCnt;
+
+    public FlatCombiner(S structure) {
+        this.structure = structure;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <R> R execute(Function<? super S, ? extends R> op) {
+        Record record = records.get();
+        record.op = op;
+        if (!record.linked) {
+            link(record);
+        }
+
+        int spins = 0;
+        while (true) {
+            if (!combining.get() && combining.compareAndSet(false, true)) {
+                try {
+                    combine();
+                } finally {
+                    combining.set(false);
+                }
+            }
+
+            if (record.op == null) {
+                break;
+            }
+
+            // the combiner may have unlinked the record just before the operation was posted
+            if (!record.linked) {
+                link(record);
+            }
+
+            if (++spins < SPINS) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+
+        Object result = record.result;
+        Throwable error = record.error;
+        record.result = null;
+        record.error = null;
+        if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        } else if (error instanceof Error) {
+            throw (Error) error;
+        }
+
+        return (R) result;
+    }
+
+    // Both only change while the combiner lock is held, so they're approximate when read concurrently.
+    // Their ratio is the average batch size - how many operations a thread ran each time it got the lock.
+    public long getCombinesCnt() {
+        return combinesCnt;
+    }
+
+    public long getCombinedCnt() {
+        return combinedCnt;
+    }
+
+    private void link(Record record) {
+        record.linked = true;
+        Record first;
+        do {
+            first = head.get();
+            record.next = first;
+        } while (!head.compareAndSet(first, record));
+    }
+
+    private void combine() {
+        combinesCnt++;
+        for (int pass = 0; pass < MAX_PASSES; pass++) {
+            passesCnt++;
+            int combined = 0;
+
+            // new records are only ever pushed at the head, so everything behind it can be unlinked safely
+            Record prev = null;
+            Record next;
+            for (Record record = head.get(); record != null; record = next) {
+                next = record.next;
+                Function<? super S, ?> op = record.op;
+                if (op != null) {
+                    try {
+                        record.result = op.apply(structure);
+                    } catch (Throwable e) {
+                        record.error = e;
+                    }
+                    record.lastPass = passesCnt;
+                    // publishes the result
+                    record.op = null;
+                    combined++;
+                } else if (prev != null && passesCnt - record.lastPass > MAX_IDLE_PASSES) {
+                    prev.next = next;
+                    record.linked = false;
+                    continue;
+                }
+
+                prev = record;
+            }
+
+            combinedCnt += combined;
+            if (combined == 0) {
+                break;
+            }
+        }
+    }
+
+    private final class Record {
+        private volatile Function<? super S, ?> op;
+        private volatile boolean linked;
+        private volatile Record next;
+        private Object result;
+        private Throwable error;
+        // guarded by combining
+        private long lastPass;
+    }
+}
@@ -0,0 +1,255 @@
+package bench;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// Executes operations concurrently on a thread pool & measures throughput and per-operation latency.
+// All chapter drivers go through this class, so that their numbers are comparable.
+public class LoadDriver {
+    public enum ExecutorType {
+        FIXED_POOL,
+        WORK_STEALING,
+        // a new virtual thread per operation (per chunk, when chunked) - threadsCnt is ignored unless chunked
+        VIRTUAL_THREADS;
+
+        // Pool threads are metered, so that their CPU time is still counted once the pool shuts down (see ResourceMeter)
+        public ExecutorService newExecutor(int threadsCnt) {
+            switch (this) {
+                case FIXED_POOL:
+                    return Executors.newFixedThreadPool(threadsCnt, ResourceMeter.threadFactory());
+                case WORK_STEALING:
+                    // same as Executors.newWorkStealingPool(), apart from the thread factory
+                    return new ForkJoinPool(threadsCnt, ResourceMeter.forkJoinThreadFactory(), null, true);
+                case VIRTUAL_THREADS:
+                    return Executors.newVirtualThreadPerTaskExecutor();
+                default:
+                    throw new IllegalStateException("unknown executor type " + this);
+            }
+        }
+
+        // Lets every driver switch executors without code changes, e.g. -Dbench.executor=VIRTUAL_THREADS
+        public static ExecutorType fromSystemProperty() {
+            return valueOf(System.getProperty("bench.executor", FIXED_POOL.name()));
+        }
+    }
+
+    private int threadsCnt = 10;
+    private int warmUpCnt = 0;
+    private ExecutorType executorType = ExecutorType.fromSystemProperty();
+    private long timeoutNanos = TimeUnit.SECONDS.toNanos(60);
+    private boolean chunked = false;
+    private boolean metered = true;
+
+    public LoadDriver threads(int threadsCnt) {
+        this.threadsCnt = threadsCnt;
+        return this;
+    }
+
+    // Executions before the measured run, which let the JIT kick in.
+    // Note that these mutate the object under test as well.
+    public LoadDriver warmUp(int executionsCnt) {
+        this.warmUpCnt = executionsCnt;
+        return this;
+    }
+
+    public LoadDriver executor(ExecutorType executorType) {
+        this.executorType = executorType;
+        return this;
+    }
+
+    // How long to wait for all operations to finish. If they don't, the result is marked as incomplete
+    public LoadDriver timeout(long timeout, TimeUnit unit) {
+        this.timeoutNanos = unit.toNanos(timeout);
+        return this;
+    }
+
+    // Instead of submitting every operation as a separate task, splits them into one chunk per thread, which runs its
+    // operations in a tight loop. All threads start together once they're ready, so what's measured is the code
+    // under test rather than the executor's task hand-off.
+    public LoadDriver chunked() {
+        this.chunked = true;
+        return this;
+    }
+
+    // Skips the ResourceMeter, whose start & stop scan all threads - for drivers which call run() in a tight loop &
+    // only care about the effect of the operations, not their cost
+    public LoadDriver unmetered() {
+        this.metered = false;
+        return this;
+    }
+
+    // Executes each of the operations executionsCnt times & waits for all of them to finish
+    public Result run(int executionsCnt, Runnable... ops) {
+        if (warmUpCnt > 0) {
+            execute(warmUpCnt, ops);
+        }
+
+        return execute(executionsCnt, ops);
+    }
+
+    private Result execute(int executionsCnt, Runnable[] ops) {
+        PinningMonitor pinning = executorType == ExecutorType.VIRTUAL_THREADS ? PinningMonitor.start() : null;
+        ExecutorService svc = executorType.newExecutor(threadsCnt);
+        long[] latencies = new long[executionsCnt * ops.length];
+
+        ResourceMeter meter = metered ? ResourceMeter.start() : null;
+        long start = chunked ? submitChunks(svc, ops, latencies) : submitEach(svc, ops, latencies);
+
+        svc.shutdown();
+        boolean completed;
+        try {
+            completed = svc.awaitTermination(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            completed = false;
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        if (meter != null) {
+            meter.stop();
+        }
+
+        long pinnedCnt = -1;
+        if (pinning != null) {
+            pinning.stop();
+            pinnedCnt = pinning.getPinnedCnt();
+            pinning.close();
+        }
+
+        return new Result(executorType, chunked, latencies, elapsedNanos, completed, pinnedCnt, meter);
+    }
+
+    // returns the start time
+    private long submitEach(ExecutorService svc, Runnable[] ops, long[] latencies) {
+        long start = System.nanoTime();
+        for (int slot = 0; slot < latencies.length; slot++) {
+            int opSlot = slot;
+            Runnable op = ops[slot % ops.length];
+            svc.execute(() -> runOp(op, latencies, opSlot));
+        }
+
+        return start;
+    }
+
+    // Slot i runs ops[i % ops.length], so the operations stay interleaved within every chunk
+    private long submitChunks(ExecutorService svc, Runnable[] ops, long[] latencies) {
+        CountDownLatch ready = new CountDownLatch(threadsCnt);
+        CountDownLatch go = new CountDownLatch(1);
+        for (int t = 0; t < threadsCnt; t++) {
+            int from = (int) ((long) latencies.length * t / threadsCnt);
+            int to = (int) ((long) latencies.length * (t + 1) / threadsCnt);
+            svc.execute(() -> {
+                ready.countDown();
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                for (int slot = from; slot < to; slot++) {
+                    runOp(ops[slot % ops.length], latencies, slot);
+                }
+            });
+        }
+
+        try {
+            ready.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long start = System.nanoTime();
+        go.countDown();
+
+        return start;
+    }
+
+    private static void runOp(Runnable op, long[] latencies, int slot) {
+        long opStart = System.nanoTime();
+        try {
+            op.run();
+        } finally {
+            latencies[slot] = System.nanoTime() - opStart;
+        }
+    }
+
+    public static class Result {
+        private final ExecutorType executorType;
+        private final boolean chunked;
+        private final long[] latencies;
+        private final long elapsedNanos;
+        private final boolean completed;
+        private final long pinnedCnt;
+        // null if unmetered
+        private final ResourceMeter meter;
+
+        Result(ExecutorType executorType, boolean chunked, long[] latencies, long elapsedNanos, boolean completed,
+               long pinnedCnt, ResourceMeter meter) {
+            this.executorType = executorType;
+            this.chunked = chunked;
+            // copied, as operations which didn't complete might still be running
+            this.latencies = latencies.clone();
+            this.elapsedNanos = elapsedNanos;
+            this.completed = completed;
+            this.pinnedCnt = pinnedCnt;
+            this.meter = meter;
+            Arrays.sort(this.latencies);
+        }
+
+        public int getOpsCnt() {
+            return latencies.length;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        // false if the operations didn't finish within the timeout (e.g. due to a deadlock)
+        public boolean isCompleted() {
+            return completed;
+        }
+
+        // Times a virtual thread blocked while pinned to its carrier. -1 if not running on virtual threads
+        public long getPinnedCnt() {
+            return pinnedCnt;
+        }
+
+        // Unless chunked, these include the executor's per-task allocations & hand-off (the task itself, its queue
+        // node, waking up a worker...), which is a fixed cost on top of every operation. -1 if not supported
+        // or unmetered.
+        public double getAllocatedBytesPerOp() {
+            return meter == null ? -1 : meter.getAllocatedBytesPerOp(latencies.length);
+        }
+
+        public double getCpuNanosPerOp() {
+            return meter == null ? -1 : meter.getCpuNanosPerOp(latencies.length);
+        }
+
+        public double getThroughput() {
+            return latencies.length * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        // percentile is between 0 and 100
+        public long getLatencyNanos(double percentile) {
+            if (latencies.length == 0)
+                return 0;
+
+            int idx = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(idx, latencies.length - 1))];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[%s%s] %d ops in %dms (%.0f ops/s), latency p50 = %dns, p99 = %dns%s%s%s",
+                    executorType, chunked ? ", chunked" : "", getOpsCnt(), elapsedNanos / 1000000, getThroughput(),
+                    getLatencyNanos(50), getLatencyNanos(99),
+                    meter == null ? "" : ", " + meter.perOp(latencies.length),
+                    pinnedCnt >= 0 ? ", pinned " + pinnedCnt + " times" : "",
+                    completed ? "" : " - DID NOT COMPLETE");
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package bench;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Counts the times a virtual thread blocked while pinned to its carrier thread.
+// Pinned virtual threads hold on to their carrier, so enough of them can starve the whole scheduler.
+//
+// JFR only reports parking inside a synchronized block as jdk.VirtualThreadPinned.
+// Waiting for a monitor (contended synchronized) or in Object.wait() pins the carrier as well,
+// so those events are counted too when they come from a virtual thread.
+public class PinningMonitor implements AutoCloseable {
+    private static final String[] PINNING_EVENTS = {
+            "jdk.VirtualThreadPinned",
+            "jdk.JavaMonitorEnter",
+            "jdk.JavaMonitorWait"
+    };
+
+    private final RecordingStream stream = new RecordingStream();
+    private final AtomicLong pinnedCnt = new AtomicLong();
+    private final AtomicLong pinnedNanos = new AtomicLong();
+
+    private PinningMonitor() {
+        for (String event : PINNING_EVENTS) {
+            stream.enable(event).withThreshold(Duration.ZERO);
+            stream.onEvent(event, this::onPinned);
+        }
+    }
+
+    public static PinningMonitor start() {
+        PinningMonitor monitor = new PinningMonitor();
+        monitor.stream.startAsync();
+
+        return monitor;
+    }
+
+    private void onPinned(RecordedEvent e) {
+        if (e.getThread() == null || !e.getThread().isVirtual())
+            return;
+
+        pinnedCnt.incrementAndGet();
+        pinnedNanos.addAndGet(e.getDuration().toNanos());
+    }
+
+    // Waits for all recorded events to be consumed, so the counts are final afterwards
+    public void stop() {
+        stream.stop();
+    }
+
+    public long getPinnedCnt() {
+        return pinnedCnt.get();
+    }
+
+    public long getPinnedNanos() {
+        return pinnedNanos.get();
+    }
+
+    @Override
+    public void close() {
+        stream.close();
+    }
+}
@@ -0,0 +1,203 @@
+package bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadFactory;
+
+// Bytes allocated & CPU time used by all threads between start() & stop(), so that the cost per operation can be
+// reported next to its latency.
+//
+// Allocations are the JVM's total, which covers threads that terminate meanwhile as well as virtual threads (their
+// allocations are accounted to their carriers). CPU time is summed over the platform threads alive at start() & stop()
+// - the JVM doesn't track it for virtual threads, so those are covered by their carriers. A thread which terminates
+// in between only counts if it ran through metered() (or one of the thread factories below), otherwise its CPU time
+// is lost. GC & JIT threads aren't Java threads, so their CPU time isn't included - the allocation rate is the
+// better hint of the GC work an operation causes.
+//
+// startCurrentThread() only meters the calling thread, which has to stop() it as well. That's for drivers where
+// several measurements run concurrently (or the other threads' work is a different operation), so the totals of all
+// threads would mix them up.
+public class ResourceMeter {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final Set<ResourceMeter> RUNNING = ConcurrentHashMap.newKeySet();
+
+    // null if all threads are metered
+    private final Thread thread;
+    private final long startBytes;
+    // by thread id, when metering all threads
+    private final Map<Long, Long> startCpuNanos;
+    // when metering the current thread
+    private final long startThreadCpuNanos;
+    // CPU time of metered threads which terminated while running, by thread id
+    private final Map<Long, Long> terminatedCpuNanos = new ConcurrentHashMap<>();
+    private long allocatedBytes = -1;
+    private long cpuNanos = -1;
+
+    private ResourceMeter(Thread thread) {
+        this.thread = thread;
+        this.startCpuNanos = thread == null ? threadCpuNanos() : Map.of();
+        this.startThreadCpuNanos = thread == null ? -1 : currentThreadCpuNanos();
+        // last, so that the meter's own allocations aren't counted
+        this.startBytes = allocatedBytes(thread);
+    }
+
+    public static ResourceMeter start() {
+        ResourceMeter meter = new ResourceMeter(null);
+        RUNNING.add(meter);
+        return meter;
+    }
+
+    // Virtual threads aren't supported - the JVM tracks neither their allocations nor their CPU time
+    public static ResourceMeter startCurrentThread() {
+        return new ResourceMeter(Thread.currentThread());
+    }
+
+    public ResourceMeter stop() {
+        if (thread != null && thread != Thread.currentThread()) {
+            throw new IllegalStateException("meter of " + thread.getName() + " stopped by another thread");
+        }
+
+        RUNNING.remove(this);
+        long bytes = allocatedBytes(thread);
+        allocatedBytes = bytes < 0 || startBytes < 0 ? -1 : bytes - startBytes;
+
+        if (thread != null) {
+            long cpu = currentThreadCpuNanos();
+            cpuNanos = cpu < 0 || startThreadCpuNanos < 0 ? -1 : cpu - startThreadCpuNanos;
+        } else if (THREADS.isThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled()) {
+            // a terminating thread reports itself before it's gone, so it may still be alive here. The reports are
+            // copied once, after the scan, so that a thread is counted either as live or as terminated - & one which
+            // reports & dies during the scan still has its report in the copy
+            Map<Long, Long> live = threadCpuNanos();
+            Map<Long, Long> terminated = new HashMap<>(terminatedCpuNanos);
+            long cpu = 0;
+            for (Map.Entry<Long, Long> thread : live.entrySet()) {
+                if (!terminated.containsKey(thread.getKey())) {
+                    cpu += thread.getValue() - startCpuNanos.getOrDefault(thread.getKey(), 0L);
+                }
+            }
+            for (long terminatedCpu : terminated.values()) {
+                cpu += terminatedCpu;
+            }
+            cpuNanos = cpu;
+        }
+
+        return this;
+    }
+
+    // -1 if not supported by the JVM, or if the meter wasn't stopped yet
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    public double getAllocatedBytesPerOp(long opsCnt) {
+        return allocatedBytes < 0 || opsCnt == 0 ? -1 : (double) allocatedBytes / opsCnt;
+    }
+
+    public double getCpuNanosPerOp(long opsCnt) {
+        return cpuNanos < 0 || opsCnt == 0 ? -1 : (double) cpuNanos / opsCnt;
+    }
+
+    public String perOp(long opsCnt) {
+        return String.format("%.1f B/op, %.0f CPU-ns/op", getAllocatedBytesPerOp(opsCnt), getCpuNanosPerOp(opsCnt));
+    }
+
+    // Wraps the whole body of a thread, so that the running meters get its CPU time when it terminates
+    public static Runnable metered(Runnable body) {
+        return () -> {
+            try {
+                body.run();
+            } finally {
+                reportTermination();
+            }
+        };
+    }
+
+    public static ThreadFactory threadFactory() {
+        ThreadFactory threads = Executors.defaultThreadFactory();
+        return body -> threads.newThread(metered(body));
+    }
+
+    public static ForkJoinPool.ForkJoinWorkerThreadFactory forkJoinThreadFactory() {
+        return MeteredWorker::new;
+    }
+
+    private static void reportTermination() {
+        Thread current = Thread.currentThread();
+        if (RUNNING.isEmpty() || current.isVirtual()) {
+            return;
+        }
+
+        long cpu = THREADS.getCurrentThreadCpuTime();
+        if (cpu < 0) {
+            return;
+        }
+        for (ResourceMeter meter : RUNNING) {
+            meter.terminatedCpuNanos.put(current.threadId(),
+                    cpu - meter.startCpuNanos.getOrDefault(current.threadId(), 0L));
+        }
+    }
+
+    private static long allocatedBytes(Thread thread) {
+        if (!THREADS.isThreadAllocatedMemorySupported() || !THREADS.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+
+        if (thread == null) {
+            return THREADS.getTotalThreadAllocatedBytes();
+        }
+        return thread.isVirtual() ? -1 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    private static long currentThreadCpuNanos() {
+        if (!THREADS.isThreadCpuTimeSupported() || !THREADS.isThreadCpuTimeEnabled()) {
+            return -1;
+        }
+
+        return Thread.currentThread().isVirtual() ? -1 : THREADS.getCurrentThreadCpuTime();
+    }
+
+    private static Map<Long, Long> threadCpuNanos() {
+        Map<Long, Long> cpuNanos = new HashMap<>();
+        if (!THREADS.isThreadCpuTimeSupported() || !THREADS.isThreadCpuTimeEnabled()) {
+            return cpuNanos;
+        }
+
+        long[] ids = THREADS.getAllThreadIds();
+        long[] cpus = THREADS.getThreadCpuTime(ids);
+        for (int i = 0; i < ids.length; i++) {
+            // -1 for threads which terminated after the ids were read
+            if (cpus[i] >= 0) {
+                cpuNanos.put(ids[i], cpus[i]);
+            }
+        }
+
+        return cpuNanos;
+    }
+
+    private static final class MeteredWorker extends ForkJoinWorkerThread {
+        private MeteredWorker(ForkJoinPool pool) {
+            super(pool);
+        }
+
+        @Override
+        protected void onTermination(Throwable exception) {
+            try {
+                reportTermination();
+            } finally {
+                super.onTermination(exception);
+            }
+        }
+    }
+}
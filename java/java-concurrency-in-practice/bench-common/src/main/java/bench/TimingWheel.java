@@ -0,0 +1,325 @@
+package bench;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// Hierarchical hashed timing wheel - scheduling & cancelling a timeout is O(1), no matter how many are pending.
+// A single ticker thread advances the wheels & runs the expired tasks, so tasks must be short (unpark or interrupt
+// a thread, cancel a future...).
+//
+// Level 0 has a slot per tick, every next level a slot per full turn of the level below it. Timeouts are placed on
+// the lowest level which covers their deadline, and cascaded down whenever the levels below wrap around.
+// Deadlines are rounded up to the next tick, so timeouts fire up to a tick late, never early.
+//
+// Created through start(), so that the ticker thread only starts once the wheel is fully constructed.
+public final class TimingWheel implements AutoCloseable {
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int FIRING = 2;
+    private static final int EXPIRED = 3;
+
+    private final long tickNanos;
+    private final int wheelBits;
+    private final Bucket[][] wheels;
+    private final long startNanos = System.nanoTime();
+
+    // Only the ticker thread touches the wheels - schedule() & cancel() hand timeouts over through these queues
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCnt = new AtomicInteger();
+    // threads inside sleep(), so that close() can wake them up - their timeouts won't fire anymore
+    private final Set<Thread> sleepers = ConcurrentHashMap.newKeySet();
+    private final Thread ticker;
+    private volatile boolean closed;
+    private long tick;
+
+    // 1ms ticks, 4 levels of 64 slots - about 4.5 hours before timeouts have to be cascaded more than once per turn
+    public static TimingWheel start() {
+        return start(1, TimeUnit.MILLISECONDS, 64, 4);
+    }
+
+    public static TimingWheel start(long tick, TimeUnit unit, int wheelSize, int levelsCnt) {
+        TimingWheel wheel = new TimingWheel(tick, unit, wheelSize, levelsCnt);
+        wheel.ticker.start();
+        return wheel;
+    }
+
+    private TimingWheel(long tick, TimeUnit unit, int wheelSize, int levelsCnt) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheel size must be a power of 2: " + wheelSize);
+        }
+
+        this.tickNanos = unit.toNanos(tick);
+        this.wheelBits = Integer.numberOfTrailingZeros(wheelSize);
+        this.wheels = new Bucket[levelsCnt][wheelSize];
+        for (Bucket[] wheel : wheels) {
+            for (int i = 0; i < wheelSize; i++) {
+                wheel[i] = new Bucket();
+            }
+        }
+
+        ticker = new Thread(this::runTicker, "timing-wheel-ticker");
+        ticker.setDaemon(true);
+    }
+
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (closed) {
+            throw new IllegalStateException("timing wheel is closed");
+        }
+
+        long delayNanos = Math.min(unit.toNanos(delay), Long.MAX_VALUE / 4);
+        long deadlineTick = (System.nanoTime() - startNanos + delayNanos + tickNanos - 1) / tickNanos;
+        Timeout timeout = new Timeout(task, deadlineTick);
+        pendingCnt.incrementAndGet();
+        scheduled.add(timeout);
+
+        return timeout;
+    }
+
+    // Like Thread.sleep(), but the sleeper is woken up by the ticker instead of parking with its own timeout.
+    // Throws IllegalStateException if the wheel is closed meanwhile, as the timeout would never fire.
+    public void sleep(long delay, TimeUnit unit) throws InterruptedException {
+        Thread current = Thread.currentThread();
+        Timeout timeout = schedule(() -> LockSupport.unpark(current), delay, unit);
+        // registered before closed is checked, so that a concurrent close() either is seen or unparks this thread
+        sleepers.add(current);
+        try {
+            while (!timeout.isExpired()) {
+                if (Thread.interrupted()) {
+                    timeout.cancel();
+                    throw new InterruptedException();
+                }
+                if (closed) {
+                    timeout.cancel();
+                    throw new IllegalStateException("timing wheel was closed while sleeping");
+                }
+
+                LockSupport.park(this);
+            }
+        } finally {
+            sleepers.remove(current);
+        }
+    }
+
+    public int getPendingCnt() {
+        return pendingCnt.get();
+    }
+
+    // Pending timeouts are dropped without running. Threads inside sleep() are woken up & get an exception
+    public void close() {
+        closed = true;
+        LockSupport.unpark(ticker);
+        for (Thread sleeper : sleepers) {
+            LockSupport.unpark(sleeper);
+        }
+    }
+
+    private void runTicker() {
+        while (!closed) {
+            long deadline = startNanos + (tick + 1) * tickNanos;
+            long now;
+            while ((now = System.nanoTime()) < deadline && !closed) {
+                LockSupport.parkNanos(this, deadline - now);
+            }
+
+            // if the ticker fell behind, the missed ticks are processed back to back
+            tick++;
+            unlinkCancelled();
+            placeScheduled();
+            cascade();
+            expire();
+        }
+    }
+
+    private void unlinkCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void placeScheduled() {
+        Timeout timeout;
+        while ((timeout = scheduled.poll()) != null) {
+            if (timeout.state == PENDING) {
+                place(timeout);
+            }
+        }
+    }
+
+    // When a level wraps around, the current slot of the level above holds the timeouts due during its next turn
+    private void cascade() {
+        for (int level = wheels.length - 1; level > 0; level--) {
+            long lowerTicksMask = (1L << (wheelBits * level)) - 1;
+            if ((tick & lowerTicksMask) == 0) {
+                Timeout timeout = slot(level, tick).detachAll();
+                while (timeout != null) {
+                    Timeout next = timeout.next;
+                    timeout.next = null;
+                    if (timeout.state == PENDING) {
+                        place(timeout);
+                    }
+                    timeout = next;
+                }
+            }
+        }
+    }
+
+    private void expire() {
+        Timeout timeout = slot(0, tick).detachAll();
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.next = null;
+            if (timeout.deadlineTick <= tick) {
+                timeout.fire();
+            } else {
+                place(timeout);
+            }
+            timeout = next;
+        }
+    }
+
+    private void place(Timeout timeout) {
+        // already expired ones (e.g. zero delay) go into the slot about to be processed
+        long deadlineTick = Math.max(timeout.deadlineTick, tick);
+        long delta = deadlineTick - tick;
+        int level = 0;
+        while (level < wheels.length - 1 && delta >= 1L << (wheelBits * (level + 1))) {
+            level++;
+        }
+
+        // past the top level's range, the slot is reached a turn early & the timeout simply cascaded again
+        slot(level, deadlineTick).add(timeout);
+    }
+
+    private Bucket slot(int level, long tick) {
+        Bucket[] wheel = wheels[level];
+        return wheel[(int) ((tick >>> (wheelBits * level)) & (wheel.length - 1))];
+    }
+
+    public final class Timeout {
+        private static final VarHandle STATE;
+
+        static {
+            try {
+                STATE = MethodHandles.lookup().findVarHandle(Timeout.class, "state", int.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final Runnable task;
+        private final long deadlineTick;
+        private volatile int state = PENDING;
+
+        // guarded by the ticker thread
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(Runnable task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        // Returns false if the task already ran. Once this returns, the task is guaranteed not to be running -
+        // unless it's called from the task itself, which can't wait for its own end.
+        public boolean cancel() {
+            if (STATE.compareAndSet(this, PENDING, CANCELLED)) {
+                pendingCnt.decrementAndGet();
+                cancelled.add(this);
+                return true;
+            }
+
+            // tasks only run on the ticker, one at a time - a firing timeout cancelled from there is the caller's own
+            if (Thread.currentThread() == ticker) {
+                return false;
+            }
+
+            while (state == FIRING) {
+                Thread.onSpinWait();
+            }
+            return false;
+        }
+
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        // true as soon as the task starts running
+        public boolean isExpired() {
+            return state >= FIRING;
+        }
+
+        private void fire() {
+            if (!STATE.compareAndSet(this, PENDING, FIRING)) {
+                return;
+            }
+
+            pendingCnt.decrementAndGet();
+            try {
+                task.run();
+            } catch (Throwable e) {
+                e.printStackTrace();
+            } finally {
+                state = EXPIRED;
+            }
+        }
+    }
+
+    // Doubly linked list, so that a cancelled timeout is unlinked in O(1)
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+
+        // returns the first timeout, still linked to the rest through next
+        Timeout detachAll() {
+            Timeout first = head;
+            for (Timeout timeout = first; timeout != null; timeout = timeout.next) {
+                timeout.bucket = null;
+                timeout.prev = null;
+            }
+            head = null;
+            tail = null;
+
+            return first;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package chapter01;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.II_Result;
+
+// Two threads get the next value concurrently. A thread-safe sequence hands out each value exactly once.
+public class SequenceTests {
+    @JCStressTest
+    @Outcome(id = {"0, 1", "1, 0"}, expect = Expect.ACCEPTABLE, desc = "Each thread got a unique value")
+    @Outcome(id = "0, 0", expect = Expect.ACCEPTABLE_INTERESTING, desc = "Lost update - value++ is not atomic")
+    @State
+    public static class UnsafeSequenceTest {
+        private final Examples.UnsafeSequence seq = new Examples.UnsafeSequence();
+
+        @Actor
+        public void actor1(II_Result r) {
+            r.r1 = seq.getNext();
+        }
+
+        @Actor
+        public void actor2(II_Result r) {
+            r.r2 = seq.getNext();
+        }
+    }
+
+    @JCStressTest
+    @Outcome(id = {"0, 1", "1, 0"}, expect = Expect.ACCEPTABLE, desc = "Each thread got a unique value")
+    @Outcome(id = "0, 0", expect = Expect.FORBIDDEN, desc = "Lost update")
+    @State
+    public static class SafeSequenceTest {
+        private final Examples.SafeSequence seq = new Examples.SafeSequence();
+
+        @Actor
+        public void actor1(II_Result r) {
+            r.r1 = seq.getNext();
+        }
+
+        @Actor
+        public void actor2(II_Result r) {
+            r.r2 = seq.getNext();
+        }
+    }
+}
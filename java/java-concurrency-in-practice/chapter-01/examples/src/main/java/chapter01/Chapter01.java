@@ -0,0 +1,96 @@
+package chapter01;
+
+import bench.LoadDriver;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class Chapter01 {
+    private static final String LEASE_AND_CRASH = "--lease-and-crash";
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 2 && args[0].equals(LEASE_AND_CRASH)) {
+            leaseAndCrash(Paths.get(args[1]));
+            return;
+        }
+
+        Examples.UnsafeSequence unsafeSeq = new Examples.UnsafeSequence();
+        parallelize(unsafeSeq::getNext);
+
+        // probably won't be 10000! (not thread-safe)
+        System.out.println(unsafeSeq.getNext());
+
+        Examples.SafeSequence safeSeq = new Examples.SafeSequence();
+        parallelize(safeSeq::getNext);
+
+        // should be 10000 (thread-safe)
+        System.out.println(safeSeq.getNext());
+
+        compareSubmissionModes();
+        mappedSequenceExample();
+    }
+
+    public static void mappedSequenceExample() throws IOException, InterruptedException {
+        Path file = Files.createTempFile("sequence", ".bin");
+        try {
+            System.out.println("\nStarting a process which leases a range, hands out 10 IDs and crashes...");
+            String java = ProcessHandle.current().info().command().orElse("java");
+            Process child = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    Chapter01.class.getName(), LEASE_AND_CRASH, file.toString())
+                    .inheritIO()
+                    .start();
+            child.waitFor();
+
+            try (Examples.MappedSequence seq = new Examples.MappedSequence(file, 16, 1000)) {
+                // should be 10 - the rest of the crashed process' range is reclaimed
+                System.out.println("First ID after the crash: " + seq.getNext());
+
+                Set<Long> ids = ConcurrentHashMap.newKeySet();
+                parallelize(() -> ids.add(seq.getNext()));
+
+                // should be 10000 (no duplicates)
+                System.out.println("Unique IDs: " + ids.size());
+            }
+
+            // more threads than slots, & a range of 1 so that every ID needs a renewal - they must queue up for
+            // the process' one slot rather than run out of them
+            System.out.println("\nRenewing a lease of 1 from 10 threads with 2 slots...");
+            try (Examples.MappedSequence seq = new Examples.MappedSequence(file, 2, 1)) {
+                Set<Long> ids = ConcurrentHashMap.newKeySet();
+                parallelize(() -> ids.add(seq.getNext()));
+
+                // should be 10000 (no duplicates & no "all 2 lease slots are taken")
+                System.out.println("Unique IDs: " + ids.size());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static void leaseAndCrash(Path file) throws IOException {
+        Examples.MappedSequence seq = new Examples.MappedSequence(file, 16, 1000);
+        for (int i = 0; i < 10; i++) {
+            seq.getNext();
+        }
+
+        // no close() - the lease stays taken as if the process crashed
+        Runtime.getRuntime().halt(1);
+    }
+
+    // Chunked, so that the numbers reflect the sequence rather than the executor's queue
+    public static void parallelize(Runnable r) {
+        LoadDriver.Result result = new LoadDriver().threads(10).chunked().run(10000, r);
+        System.out.println("\t" + result);
+    }
+
+    public static void compareSubmissionModes() {
+        System.out.println("\nSafe sequence, 1M ops submitted one by one vs. in per-thread chunks:");
+        Examples.SafeSequence seq = new Examples.SafeSequence();
+        System.out.println("\t" + new LoadDriver().threads(10).run(1_000_000, seq::getNext));
+        System.out.println("\t" + new LoadDriver().threads(10).chunked().run(1_000_000, seq::getNext));
+    }
+}
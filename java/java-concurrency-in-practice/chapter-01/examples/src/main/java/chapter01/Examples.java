@@ -0,0 +1,186 @@
+package chapter01;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class Examples {
+    static class UnsafeSequence {
+        private int value;
+
+        public int getNext() {
+            return value++;
+        }
+    }
+
+    static class SafeSequence {
+        private int value;
+
+        public synchronized int getNext() {
+            return value++;
+        }
+    }
+
+    // Hands out unique IDs to all processes on the same host which share the given file.
+    //
+    // The file holds the next value which hasn't been leased yet & a table of lease slots.
+    // Each process claims a slot & leases a range of values into it. IDs are then handed out by CAS-ing the slot's
+    // next value directly in the mapped file - no locks within the process & the progress survives a crash.
+    // When a process dies, its slot becomes available again & the unused part of its range is handed out by whoever
+    // claims it next, so the only gaps left are the ones of crashes in the middle of leasing a range.
+    static class MappedSequence implements AutoCloseable {
+        private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+        // Every slot is padded to a cache line, so that processes don't falsely share them. Slot 0 is the header
+        private static final int SLOT_SIZE = 64;
+        private static final int HIGH_WATER_MARK = 0;
+        private static final int OWNER = 0;
+        private static final int NEXT = 8;
+        private static final int END = 16;
+
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final int slotsCnt;
+        private final long rangeSize;
+        private final long pid = ProcessHandle.current().pid();
+        private final AtomicInteger activeSlot = new AtomicInteger(-1);
+        private final Lock renewal = new ReentrantLock();
+
+        public MappedSequence(Path file, int slotsCnt, long rangeSize) throws IOException {
+            this.slotsCnt = slotsCnt;
+            this.rangeSize = rangeSize;
+            this.channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, SLOT_SIZE * (slotsCnt + 1L));
+            reclaimLeases();
+        }
+
+        public long getNext() {
+            while (true) {
+                int slot = activeSlot.get();
+                if (slot >= 0) {
+                    int offset = offset(slot);
+                    long next = (long) LONGS.getVolatile(buffer, offset + NEXT);
+                    if (next < (long) LONGS.getVolatile(buffer, offset + END)) {
+                        if (LONGS.compareAndSet(buffer, offset + NEXT, next, next + 1))
+                            return next;
+
+                        continue;
+                    }
+                }
+
+                renewLease(slot);
+            }
+        }
+
+        // Frees the slots of processes which are no longer alive. Returns the number of reclaimed slots
+        public int reclaimLeases() {
+            int reclaimed = 0;
+            for (int slot = 0; slot < slotsCnt; slot++) {
+                long owner = (long) LONGS.getVolatile(buffer, offset(slot) + OWNER);
+                if (owner != 0 && !isAlive(owner) && LONGS.compareAndSet(buffer, offset(slot) + OWNER, owner, 0L)) {
+                    reclaimed++;
+                }
+            }
+
+            return reclaimed;
+        }
+
+        // Gives up the current lease. Its unused values are handed out by the next process which claims the slot
+        @Override
+        public void close() throws IOException {
+            int slot = activeSlot.getAndSet(-1);
+            if (slot >= 0) {
+                release(slot);
+            }
+            channel.close();
+        }
+
+        // Several threads might find the lease exhausted at the same time. They renew it one at a time - whoever comes
+        // after the first finds a lease with values left & retries, so a process only ever holds the one slot
+        private void renewLease(int exhausted) {
+            renewal.lock();
+            try {
+                if (activeSlot.get() != exhausted || (exhausted >= 0 && remaining(exhausted) > 0))
+                    return;
+
+                int slot = acquireSlot(exhausted);
+                activeSlot.set(slot);
+                if (exhausted >= 0 && slot != exhausted) {
+                    release(exhausted);
+                }
+            } finally {
+                renewal.unlock();
+            }
+        }
+
+        private int acquireSlot(int exhausted) {
+            // leftovers of released or crashed leases go first, so that there are no gaps
+            for (int slot = 0; slot < slotsCnt; slot++) {
+                if (remaining(slot) > 0 && claim(slot)) {
+                    if (remaining(slot) <= 0) {
+                        leaseRange(slot);
+                    }
+                    return slot;
+                }
+            }
+
+            // the exhausted slot is still ours, so a new range goes right into it
+            if (exhausted >= 0) {
+                leaseRange(exhausted);
+                return exhausted;
+            }
+
+            for (int slot = 0; slot < slotsCnt; slot++) {
+                if (claim(slot)) {
+                    leaseRange(slot);
+                    return slot;
+                }
+            }
+
+            throw new IllegalStateException("all " + slotsCnt + " lease slots are taken");
+        }
+
+        private boolean claim(int slot) {
+            int offset = offset(slot);
+            long owner = (long) LONGS.getVolatile(buffer, offset + OWNER);
+            if (owner != 0 && (owner == pid || isAlive(owner)))
+                return false;
+
+            return LONGS.compareAndSet(buffer, offset + OWNER, owner, pid);
+        }
+
+        private void leaseRange(int slot) {
+            int offset = offset(slot);
+            long start = (long) LONGS.getAndAdd(buffer, HIGH_WATER_MARK, rangeSize);
+            LONGS.setVolatile(buffer, offset + NEXT, start);
+            LONGS.setVolatile(buffer, offset + END, start + rangeSize);
+        }
+
+        private void release(int slot) {
+            LONGS.setVolatile(buffer, offset(slot) + OWNER, 0L);
+        }
+
+        private long remaining(int slot) {
+            int offset = offset(slot);
+            return (long) LONGS.getVolatile(buffer, offset + END) - (long) LONGS.getVolatile(buffer, offset + NEXT);
+        }
+
+        private static int offset(int slot) {
+            return SLOT_SIZE * (slot + 1);
+        }
+
+        // A reused pid would keep a crashed process' slot taken until that process exits as well
+        private static boolean isAlive(long pid) {
+            return ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package chapter02;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.I_Result;
+
+// Two threads set the same key concurrently. A thread-safe cache increments a key only once.
+public class CacheTests {
+    @JCStressTest
+    @Outcome(id = "1", expect = Expect.ACCEPTABLE, desc = "Key was set once")
+    @Outcome(id = "2", expect = Expect.ACCEPTABLE_INTERESTING, desc = "Both threads passed the containsKey check")
+    @State
+    public static class NonAtomicCompoundCacheTest {
+        private final Examples.NonAtomicCompoundCache cache = new Examples.NonAtomicCompoundCache();
+
+        @Actor
+        public void actor1() {
+            cache.setValue(1);
+        }
+
+        @Actor
+        public void actor2() {
+            cache.setValue(1);
+        }
+
+        @Arbiter
+        public void arbiter(I_Result r) {
+            r.r1 = cache.getValue(1);
+        }
+    }
+
+    @JCStressTest
+    @Outcome(id = "1", expect = Expect.ACCEPTABLE, desc = "Key was set once")
+    @Outcome(id = "2", expect = Expect.FORBIDDEN, desc = "Key was set twice")
+    @State
+    public static class SafeCacheTest {
+        private final Examples.SafeCache cache = new Examples.SafeCache();
+
+        @Actor
+        public void actor1() {
+            cache.setValue(1);
+        }
+
+        @Actor
+        public void actor2() {
+            cache.setValue(1);
+        }
+
+        @Arbiter
+        public void arbiter(I_Result r) {
+            r.r1 = cache.getValue(1);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package chapter02;
+
+import bench.LoadDriver;
+import bench.ResourceMeter;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+public class Chapter02 {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        System.out.println("HitCounter test.");
+
+        System.out.println("\nNon Thread-Safe example (hit 10000 times):");
+        Examples.UnsafeHitCounter unsafe = new Examples.UnsafeHitCounter();
+        parallelize(10000, unsafe::hit);
+
+        // probably won't be 10000! (not thread-safe)
+        System.out.println(unsafe.getHits());
+
+        System.out.println("\nThread-Safe example (hit 10000 times):");
+        Examples.SafeHitCounter safe = new Examples.SafeHitCounter();
+        parallelize(10000, safe::hit);
+
+        // should be 10000 (thread-safe)
+        System.out.println(safe.getHits());
+
+        System.out.println("\nNon-thread-safe example with unsafe cache");
+        Examples.UnsafeCache unsafeCache = new Examples.UnsafeCache();
+        testCache(unsafeCache);
+
+        System.out.println("Non-thread-safe example with non-atomic compound actions cache");
+        Examples.NonAtomicCompoundCache nonAtomicCompoundCache = new Examples.NonAtomicCompoundCache();
+        testCache(nonAtomicCompoundCache);
+
+        System.out.println("Thread-safe cache example");
+        Examples.SafeCache threadSafeCache = new Examples.SafeCache();
+        testCache(threadSafeCache);
+
+        System.out.println("Persistent cache restart example");
+        testCacheRestart(1_000_000);
+    }
+
+    public static void testCache(Examples.Cache cache) {
+        AtomicInteger cnt1 = new AtomicInteger(0);
+        AtomicInteger cnt2 = new AtomicInteger(0);
+        parallelize(10000,
+                () -> cache.setValue(cnt1.incrementAndGet()),
+                () -> cache.setValue(cnt2.incrementAndGet()));
+
+        int violationsCnt = 0;
+        for (int i = 1; i <= cnt1.get(); i++) {
+            int actual = cache.getValue(i);
+            if (actual != 1) {
+                violationsCnt++;
+            }
+        }
+
+        if (violationsCnt == 0) {
+            System.out.println("Cache is thread-safe!\n");
+        } else {
+            System.out.println("Cache is NOT thread-safe with " + violationsCnt + " violations!\n");
+        }
+    }
+
+    // Writers keep adding keys while snapshots are taken in the background. The process then "crashes" between two
+    // snapshots, so the keys written since the last one are lost. After each kind of restart, readers look up keys
+    // skewed towards the most recent ones & fill in their misses (cache-aside), so the hit rate recovers over time.
+    public static void testCacheRestart(int entriesCnt) throws IOException, InterruptedException {
+        Examples.PersistentCache cache = new Examples.PersistentCache();
+        for (int i = 1; i <= entriesCnt; i++) {
+            cache.setValue(i);
+        }
+
+        // writers must not be stopped while a snapshot is taken
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicInteger lastKey = new AtomicInteger(entriesCnt);
+        Thread writer = new Thread(() -> {
+            while (!stop.get()) {
+                cache.setValue(lastKey.incrementAndGet());
+                LockSupport.parkNanos(10_000);
+            }
+        });
+        writer.start();
+
+        Path file = Files.createTempFile("safe-cache", ".snapshot");
+        ScheduledExecutorService snapshots = Executors.newSingleThreadScheduledExecutor();
+        cache.scheduleSnapshots(snapshots, file, 200, TimeUnit.MILLISECONDS);
+        Thread.sleep(1100);
+        // the crash - periodic snapshots are cancelled, but one in progress finishes
+        snapshots.shutdown();
+        snapshots.awaitTermination(10, TimeUnit.SECONDS);
+        stop.set(true);
+        writer.join();
+
+        int keysCnt = lastKey.get();
+        int snapshotCnt = snapshotEntriesCnt(file);
+        System.out.println("	last snapshot has " + snapshotCnt + " of " + keysCnt + " keys (" +
+                (keysCnt - snapshotCnt) + " written after it), " + Files.size(file) / 1024 + "KB");
+
+        int chunksCnt = Runtime.getRuntime().availableProcessors() * 4;
+        measureRestart("cold", Examples.PersistentCache::new, keysCnt);
+        measureRestart("parallel load (" + chunksCnt + " chunks)",
+                () -> Examples.PersistentCache.load(file, chunksCnt), keysCnt);
+        measureRestart("lazy load", () -> Examples.PersistentCache.loadLazily(file), keysCnt);
+        System.out.println();
+
+        Files.delete(file);
+    }
+
+    private interface Restart {
+        Examples.PersistentCache restart() throws IOException;
+    }
+
+    // Restart time & resources until the cache serves, then the hit rate of 5 consecutive windows of lookups
+    private static void measureRestart(String name, Restart restart, int keysCnt) throws IOException {
+        ResourceMeter meter = ResourceMeter.start();
+        long start = System.nanoTime();
+        Examples.PersistentCache cache = restart.restart();
+        long restartMs = (System.nanoTime() - start) / 1000000;
+        meter.stop();
+
+        int windowsCnt = 5;
+        int lookupsCnt = 200_000;
+        StringBuilder hitRates = new StringBuilder();
+        start = System.nanoTime();
+        for (int i = 0; i < windowsCnt; i++) {
+            hitRates.append(String.format(" %.1f%%", hitRate(cache, keysCnt, lookupsCnt)));
+        }
+        long lookupNanos = (System.nanoTime() - start) / ((long) windowsCnt * lookupsCnt);
+
+        System.out.println("	" + name + " - ready in " + restartMs + "ms (" + meter.getAllocatedBytes() / 1024 +
+                "KB, " + meter.getCpuNanos() / 1000000 + " CPU-ms), hit rate per " + lookupsCnt + " lookups =" +
+                hitRates + ", " + lookupNanos + "ns per lookup");
+    }
+
+    // Recent keys are looked up more often - about half of the lookups go to the newest quarter of the keys
+    private static double hitRate(Examples.Cache cache, int keysCnt, int lookupsCnt) {
+        int hitsCnt = 0;
+        for (int i = 0; i < lookupsCnt; i++) {
+            double age = ThreadLocalRandom.current().nextDouble();
+            int key = keysCnt - (int) (keysCnt * age * age);
+            if (cache.getValue(key) != 0) {
+                hitsCnt++;
+            } else {
+                cache.setValue(key);
+            }
+        }
+
+        return 100.0 * hitsCnt / lookupsCnt;
+    }
+
+    private static int snapshotEntriesCnt(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            return in.readInt();
+        }
+    }
+
+    // Chunked, so that the numbers reflect the structure under test rather than the executor's queue
+    public static void parallelize(int executionsCnt, Runnable ...rs) {
+        LoadDriver.Result result = new LoadDriver().threads(10).chunked().run(executionsCnt, rs);
+        System.out.println("\t" + result);
+    }
+}
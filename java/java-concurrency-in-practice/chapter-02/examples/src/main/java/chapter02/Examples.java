@@ -0,0 +1,252 @@
+package chapter02;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+public class Examples {
+    static class UnsafeHitCounter {
+        private long hits;
+
+        public long getHits() {
+            return hits;
+        }
+
+        public void hit() {
+            ++hits;
+        }
+    }
+
+    static class SafeHitCounter {
+        private AtomicLong hits = new AtomicLong(0);
+
+        public long getHits() {
+            return hits.get();
+        }
+
+        public void hit() {
+            hits.getAndIncrement();
+        }
+    }
+
+    interface Cache {
+        int getValue(int key);
+        void setValue(int key);
+    }
+
+    // Not exactly the same example as in the book, but its the same principle
+    // This is an example of using non thread-safe class (HashMap)
+    // If the cache is thread-safe, it should increment a key only once
+    static class UnsafeCache implements Cache {
+        Map<Integer, Integer> cache = new HashMap<>();
+
+        public int getValue(int key) {
+            return cache.getOrDefault(key, 0);
+        }
+
+        public void setValue(int key) {
+            if (!cache.containsKey(key)) {
+                cache.put(key, cache.getOrDefault(key, 0) + 1);
+            }
+        }
+    }
+
+    // This uses a thread-safe class, but compound actions aren't synchronized.
+    // Hence, the class is still non thread-safe
+    static class NonAtomicCompoundCache implements Cache {
+        Map<Integer, Integer> cache = new ConcurrentHashMap<>();
+
+        public int getValue(int key) {
+            return cache.getOrDefault(key, 0);
+        }
+
+        public void setValue(int key) {
+            if (!cache.containsKey(key)) {
+                cache.put(key, cache.getOrDefault(key, 0) + 1);
+            }
+        }
+    }
+
+    static class SafeCache implements Cache {
+        Map<Integer, Integer> cache;
+
+        SafeCache() {
+            this(16);
+        }
+
+        SafeCache(int initialCapacity) {
+            cache = new ConcurrentHashMap<>(initialCapacity);
+        }
+
+        public int getValue(int key) {
+            return cache.getOrDefault(key, 0);
+        }
+
+        public void setValue(int key) {
+            cache.putIfAbsent(key, cache.getOrDefault(key, 0) + 1);
+        }
+    }
+
+    // SafeCache which can be written to & restored from a snapshot file, so that a restart doesn't start with a cold cache.
+    // Snapshot format: entries count, followed by (key, value) pairs sorted by key - all of them ints.
+    //
+    // A restart either loads the whole snapshot in parallel chunks before serving (load), or serves right away &
+    // looks up misses in the mapped snapshot (loadLazily) - a binary search, which is why the pairs are sorted.
+    static class PersistentCache extends SafeCache {
+        // the mapped snapshot of a lazily loaded cache, null otherwise. Only read via absolute gets
+        private final IntBuffer snapshot;
+        private final int snapshotCnt;
+
+        PersistentCache() {
+            this(16);
+        }
+
+        PersistentCache(int initialCapacity) {
+            super(initialCapacity);
+            this.snapshot = null;
+            this.snapshotCnt = 0;
+        }
+
+        private PersistentCache(IntBuffer snapshot, int snapshotCnt) {
+            super((int) (snapshotCnt / 0.75f) + 1);
+            this.snapshot = snapshot;
+            this.snapshotCnt = snapshotCnt;
+        }
+
+        @Override
+        public int getValue(int key) {
+            faultIn(key);
+            return super.getValue(key);
+        }
+
+        @Override
+        public void setValue(int key) {
+            faultIn(key);
+            super.setValue(key);
+        }
+
+        // Iterating a ConcurrentHashMap is weakly consistent - writers aren't blocked while the snapshot is taken,
+        // but entries added meanwhile might not make it in.
+        // The snapshot is written to a temporary file first, so that a crash never leaves a half-written snapshot behind.
+        public int snapshot(Path file) throws IOException {
+            // key in the high half, so that sorting the longs sorts the entries by key
+            long[] entries = new long[cache.size() + snapshotCnt + 16];
+            int n = 0;
+            for (Map.Entry<Integer, Integer> e : cache.entrySet()) {
+                if (n == entries.length) {
+                    entries = Arrays.copyOf(entries, entries.length * 2);
+                }
+                entries[n++] = pack(e.getKey(), e.getValue());
+            }
+            // entries of a lazily loaded cache which weren't looked up yet only exist in the old snapshot
+            for (int i = 0; i < snapshotCnt; i++) {
+                int key = snapshot.get(2 * i);
+                if (!cache.containsKey(key)) {
+                    if (n == entries.length) {
+                        entries = Arrays.copyOf(entries, entries.length * 2);
+                    }
+                    entries[n++] = pack(key, snapshot.get(2 * i + 1));
+                }
+            }
+            Arrays.sort(entries, 0, n);
+
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Integer.BYTES * (1L + 2L * n));
+                buffer.putInt(n);
+                IntBuffer ints = buffer.asIntBuffer();
+                for (int i = 0; i < n; i++) {
+                    ints.put((int) (entries[i] >> 32));
+                    ints.put((int) entries[i]);
+                }
+                buffer.force();
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            return n;
+        }
+
+        public ScheduledFuture<?> scheduleSnapshots(ScheduledExecutorService svc, Path file, long period, TimeUnit unit) {
+            return svc.scheduleAtFixedRate(() -> {
+                try {
+                    snapshot(file);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }, period, period, unit);
+        }
+
+        // Splits the snapshot in chunksCnt chunks which are loaded in parallel into a presized cache
+        public static PersistentCache load(Path file, int chunksCnt) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                int entriesCnt = buffer.getInt(0);
+                IntBuffer entries = buffer.slice(Integer.BYTES, entriesCnt * 2 * Integer.BYTES).asIntBuffer();
+
+                // initial capacity is the number of elements to fit without resizing, given the default load factor
+                PersistentCache result = new PersistentCache((int) (entriesCnt / 0.75f) + 1);
+                IntStream.range(0, chunksCnt).parallel().forEach(chunk -> {
+                    int from = (int) ((long) entriesCnt * chunk / chunksCnt);
+                    int to = (int) ((long) entriesCnt * (chunk + 1) / chunksCnt);
+                    for (int i = from; i < to; i++) {
+                        result.cache.put(entries.get(2 * i), entries.get(2 * i + 1));
+                    }
+                });
+
+                return result;
+            }
+        }
+
+        // Only maps the snapshot - entries are copied into the cache the first time they're looked up.
+        // The mapping stays valid after the channel is closed.
+        public static PersistentCache loadLazily(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                int entriesCnt = buffer.getInt(0);
+                return new PersistentCache(
+                        buffer.slice(Integer.BYTES, entriesCnt * 2 * Integer.BYTES).asIntBuffer(), entriesCnt);
+            }
+        }
+
+        private void faultIn(int key) {
+            if (snapshot == null || cache.containsKey(key)) {
+                return;
+            }
+
+            int low = 0;
+            int high = snapshotCnt - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int midKey = snapshot.get(2 * mid);
+                if (midKey < key) {
+                    low = mid + 1;
+                } else if (midKey > key) {
+                    high = mid - 1;
+                } else {
+                    cache.putIfAbsent(key, snapshot.get(2 * mid + 1));
+                    return;
+                }
+            }
+        }
+
+        private static long pack(int key, int value) {
+            return (long) key << 32 | (value & 0xFFFFFFFFL);
+        }
+    }
+}
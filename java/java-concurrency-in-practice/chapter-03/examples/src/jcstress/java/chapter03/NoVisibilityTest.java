@@ -0,0 +1,29 @@
+package chapter03;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Mode;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.Signal;
+import org.openjdk.jcstress.annotations.State;
+
+// The reader spins on a non-volatile flag, so the JIT is free to hoist the read out of the loop.
+// Note that initialize() sleeps for a second, so every iteration of this test takes at least that long.
+@JCStressTest(Mode.Termination)
+@Outcome(id = "TERMINATED", expect = Expect.ACCEPTABLE, desc = "Reader saw the flag")
+@Outcome(id = "STALE", expect = Expect.ACCEPTABLE_INTERESTING, desc = "Reader never saw the flag")
+@State
+public class NoVisibilityTest {
+    private final Examples.NoVisibility noVisibility = new Examples.NoVisibility();
+
+    @Actor
+    public void reader() {
+        noVisibility.run();
+    }
+
+    @Signal
+    public void writer() {
+        noVisibility.initialize();
+    }
+}
@@ -1,3 +1,5 @@
+package chapter03;
+
 public class Examples {
     public static class NoVisibility {
         private boolean ready;
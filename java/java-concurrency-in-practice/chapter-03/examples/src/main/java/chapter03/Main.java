@@ -1,3 +1,5 @@
+package chapter03;
+
 import java.time.Duration;
 import java.time.Instant;
 import java.util.concurrent.ExecutorService;
@@ -0,0 +1,42 @@
+package chapter04;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.II_Result;
+
+// Both setters check the invariant (lower <= upper) against the other bound & then act.
+// Only one of them should succeed, as lower = 5 & upper = 4 contradict each other.
+@JCStressTest
+@Outcome(id = "5, 10", expect = Expect.ACCEPTABLE, desc = "setLower won, setUpper was rejected")
+@Outcome(id = "0, 4", expect = Expect.ACCEPTABLE, desc = "setUpper won, setLower was rejected")
+@Outcome(id = "5, 4", expect = Expect.ACCEPTABLE_INTERESTING, desc = "Invariant violated - check-then-act race")
+@State
+public class UnsafeNumberRangeTest {
+    private final Examples.UnsafeNumberRange range = new Examples.UnsafeNumberRange(0, 10);
+
+    @Actor
+    public void setLower() {
+        try {
+            range.setLower(5);
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+    @Actor
+    public void setUpper() {
+        try {
+            range.setUpper(4);
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+    @Arbiter
+    public void arbiter(II_Result r) {
+        r.r1 = range.getLower();
+        r.r2 = range.getUpper();
+    }
+}
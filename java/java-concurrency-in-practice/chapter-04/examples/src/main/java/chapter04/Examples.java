@@ -1,3 +1,7 @@
+package chapter04;
+
+import bench.FlatCombiner;
+
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -53,4 +57,43 @@ public class Examples {
             return absent;
         }
     }
+
+    // putIfAbsent done right - on the list's own lock, like the synchronized list's methods.
+    public static class SafeListHelper<E> {
+        public List<E> list = Collections.synchronizedList(new ArrayList<E>());
+
+        public boolean putIfAbsent(E x) {
+            synchronized (list) {
+                boolean absent = !list.contains(x);
+                if (absent)
+                    list.add(x);
+
+                return absent;
+            }
+        }
+    }
+
+    // Thread-safe as well, but instead of every thread taking the lock to run its own putIfAbsent,
+    // whichever thread is combining runs the putIfAbsent calls of all waiting threads in one go.
+    public static class FlatCombiningListHelper<E> {
+        private final FlatCombiner<List<E>> combiner = new FlatCombiner<>(new ArrayList<>());
+
+        public boolean putIfAbsent(E x) {
+            return combiner.execute(list -> {
+                boolean absent = !list.contains(x);
+                if (absent)
+                    list.add(x);
+
+                return absent;
+            });
+        }
+
+        public int size() {
+            return combiner.execute(List::size);
+        }
+
+        public FlatCombiner<List<E>> getCombiner() {
+            return combiner;
+        }
+    }
 }
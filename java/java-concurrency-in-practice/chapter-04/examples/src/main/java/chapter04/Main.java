@@ -0,0 +1,81 @@
+package chapter04;
+
+import bench.FlatCombiner;
+import bench.LoadDriver;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+public class Main extends Thread {
+    private static ThreadLocal<Integer> globalCnt = ThreadLocal.withInitial(() -> 0);
+
+    public static void main(String[] args) throws InterruptedException {
+        // Both issues don't reproduce every time. It typically happens once every 4-5 runs
+        System.out.println("Test #1 - non-atomic compound actions");
+        testInvariantViolation(100000, () -> new Examples.UnsafeNumberRange(0, 10), (nr) -> {
+            if (nr.getLower() > nr.getUpper()) {
+                System.out.printf("Invariant violated. Range(%d-%d)\n", nr.getLower(), nr.getUpper());
+            }
+
+        }, (nr) -> nr.setLower(5), (nr) -> nr.setUpper(4));
+
+        System.out.println("Test #2 - bad client-side locking");
+        testInvariantViolation(100000, () -> new Examples.ListHelper<>(), (lh) -> {
+            if (lh.list.lastIndexOf(42) != lh.list.indexOf(42)) {
+                System.out.println("Invariant violated. 42 contained more than once in list.");
+            }
+        }, (lh) -> lh.list.add(42), (lh) -> lh.putIfAbsent(42));
+
+        System.out.println("Test #3 - lock-based vs. flat-combining putIfAbsent");
+        int maxThreadsCnt = Runtime.getRuntime().availableProcessors() * 2;
+        for (int threadsCnt = 1; threadsCnt <= maxThreadsCnt; threadsCnt *= 2) {
+            measurePutIfAbsent(threadsCnt);
+        }
+        System.exit(0);
+    }
+
+    // putIfAbsent of random values out of 64, so that the list stays short & the lock hand-off dominates.
+    // Chunked, so that the threads contend on the list's lock rather than on the executor's queue
+    public static void measurePutIfAbsent(int threadsCnt) {
+        LoadDriver driver = new LoadDriver().threads(threadsCnt).chunked().warmUp(100000);
+
+        Examples.SafeListHelper<Integer> locking = new Examples.SafeListHelper<>();
+        LoadDriver.Result result = driver.run(500000,
+                () -> locking.putIfAbsent(ThreadLocalRandom.current().nextInt(64)));
+        System.out.println("\t" + threadsCnt + " threads, lock-based - " + result);
+
+        Examples.FlatCombiningListHelper<Integer> combining = new Examples.FlatCombiningListHelper<>();
+        result = driver.run(500000, () -> combining.putIfAbsent(ThreadLocalRandom.current().nextInt(64)));
+        FlatCombiner<?> combiner = combining.getCombiner();
+        System.out.printf("\t%d threads, flat-combining - %s, %.1f ops combined per lock acquisition%n", threadsCnt, result,
+                (double) combiner.getCombinedCnt() / combiner.getCombinesCnt());
+    }
+
+    public static <T> void testInvariantViolation(
+            int times, Supplier<T> init, Consumer<T> verifyFunc, Consumer<T>...consumers) throws InterruptedException {
+        // unmetered - only the invariant matters here, & metering every one of the runs would dominate them
+        LoadDriver driver = new LoadDriver().threads(5).timeout(1, TimeUnit.SECONDS).unmetered();
+        for (int i = 0; i < times; i++) {
+            T cls = init.get();
+            Runnable[] ops = new Runnable[consumers.length];
+            for (int j = 0; j < consumers.length; j++) {
+                Consumer<T> consumer = consumers[j];
+                ops[j] = ignoreException(() -> consumer.accept(cls));
+            }
+
+            driver.run(1, ops);
+            verifyFunc.accept(cls);
+        }
+    }
+
+    public static Runnable ignoreException(Runnable r) {
+        return () -> {
+            try {
+                r.run();
+            } catch (IllegalArgumentException ignored) {
+            }
+        };
+    }
+}
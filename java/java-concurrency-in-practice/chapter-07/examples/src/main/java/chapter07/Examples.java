@@ -0,0 +1,183 @@
+package chapter07;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class Examples {
+    public static Runnable threadCancellation() {
+        return () -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            System.out.println("\t" + Thread.currentThread().getName() + " - cancellable thread was interrupted");
+        };
+    }
+
+    public static void cancellationViaInterruptedException() throws InterruptedException {
+        try {
+            while (true) {
+                Thread.sleep(1000);
+            }
+
+        } finally {
+            System.out.println("\t" + Thread.currentThread().getName() + " - thread was interrupted");
+        }
+    }
+
+    // Transforms all of src's remaining bytes into dst, which has room for them
+    public interface Transform {
+        void apply(ByteBuffer src, ByteBuffer dst);
+    }
+
+    // A file copy - or copy & transform - which stops promptly on Future.cancel(true).
+    // FileChannel is an InterruptibleChannel: interrupting a thread blocked in (or entering) one of its operations
+    // closes the channel & throws ClosedByInterruptException, so there's no interrupt flag to poll between chunks.
+    // Reading a mapped buffer is a plain memory access though, so the transform stage hands every block over to the
+    // target channel, which is where it notices the interruption.
+    //
+    // The output goes to a ".part" file next to the target, which is moved into place once complete & deleted
+    // otherwise, so a cancelled copy never leaves a truncated target behind.
+    public static class FilePipeline implements Callable<Long> {
+        // the transfers & mapped windows are bounded, so that a cancelled copy doesn't finish a huge chunk first
+        private static final long TRANSFER_CHUNK = 8L << 20;
+        private static final long MAP_WINDOW = 64L << 20;
+        private static final int BLOCK = 64 << 10;
+
+        private final Path source;
+        private final Path target;
+        private final Transform transform;
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private volatile long copiedBytes;
+
+        // zero-copy - the kernel moves the bytes between the files without them passing through the JVM
+        public FilePipeline(Path source, Path target) {
+            this(source, target, null);
+        }
+
+        public FilePipeline(Path source, Path target, Transform transform) {
+            this.source = source;
+            this.target = target;
+            this.transform = transform;
+        }
+
+        @Override
+        public Long call() throws IOException {
+            Path part = target.resolveSibling(target.getFileName() + ".part");
+            try {
+                long size;
+                try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                     FileChannel out = FileChannel.open(part, StandardOpenOption.CREATE,
+                             StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    size = transform == null ? transfer(in, out) : transform(in, out);
+                }
+                // cancelled after the last channel operation - the caller has given up on the result already
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("cancelled before " + target + " was moved into place");
+                }
+                Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+                return size;
+            } catch (IOException | RuntimeException | Error e) {
+                try {
+                    Files.deleteIfExists(part);
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw e;
+            } finally {
+                finished.countDown();
+            }
+        }
+
+        public long getCopiedBytes() {
+            return copiedBytes;
+        }
+
+        // Future.get() returns as soon as the future is cancelled - this waits until the pipeline actually stopped,
+        // with its channels closed & the partial output deleted
+        public boolean awaitFinished(long timeout, TimeUnit unit) throws InterruptedException {
+            return finished.await(timeout, unit);
+        }
+
+        private long transfer(FileChannel in, FileChannel out) throws IOException {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                long transferred = in.transferTo(position, Math.min(TRANSFER_CHUNK, size - position), out);
+                if (transferred == 0) {
+                    throw new IOException(source + " was truncated during the copy");
+                }
+
+                position += transferred;
+                copiedBytes = position;
+            }
+
+            return position;
+        }
+
+        private long transform(FileChannel in, FileChannel out) throws IOException {
+            long size = in.size();
+            ByteBuffer block = ByteBuffer.allocateDirect(BLOCK);
+            for (long window = 0; window < size; window += MAP_WINDOW) {
+                MappedByteBuffer mapped =
+                        in.map(FileChannel.MapMode.READ_ONLY, window, Math.min(MAP_WINDOW, size - window));
+                while (mapped.hasRemaining()) {
+                    int blockSize = Math.min(BLOCK, mapped.remaining());
+                    block.clear();
+                    transform.apply(mapped.slice(mapped.position(), blockSize), block);
+                    block.flip();
+                    while (block.hasRemaining()) {
+                        out.write(block);
+                    }
+
+                    mapped.position(mapped.position() + blockSize);
+                    copiedBytes += blockSize;
+                }
+            }
+
+            return size;
+        }
+    }
+
+    // The baseline - every byte is copied into the JVM's heap & back. Stream reads & writes of files don't respond
+    // to interruption at all, so a cancelled copy runs to completion.
+    public static long streamCopy(Path source, Path target, Transform transform) throws IOException {
+        byte[] src = new byte[FilePipeline.BLOCK];
+        byte[] dst = new byte[FilePipeline.BLOCK];
+        long size = 0;
+        try (InputStream in = new FileInputStream(source.toFile());
+             OutputStream out = new FileOutputStream(target.toFile())) {
+            int n;
+            while ((n = in.read(src)) > 0) {
+                if (transform == null) {
+                    out.write(src, 0, n);
+                } else {
+                    transform.apply(ByteBuffer.wrap(src, 0, n), ByteBuffer.wrap(dst));
+                    out.write(dst, 0, n);
+                }
+                size += n;
+            }
+        }
+
+        return size;
+    }
+}
@@ -0,0 +1,248 @@
+package chapter07;
+
+import bench.ResourceMeter;
+import bench.TimingWheel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+public class Main extends Thread {
+    private static ThreadLocal<Integer> globalCnt = ThreadLocal.withInitial(() -> 0);
+
+    // flips half of the bits of every byte - cheap enough for the copy to stay I/O-bound
+    private static final Examples.Transform XOR = (src, dst) -> {
+        while (src.remaining() >= Long.BYTES) {
+            dst.putLong(src.getLong() ^ 0x5A5A5A5A5A5A5A5AL);
+        }
+        while (src.hasRemaining()) {
+            dst.put((byte) (src.get() ^ 0x5A));
+        }
+    };
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        shutdownHookExample();
+        cancellableThreadExample();
+        threadCancellationViaInterruptionExample();
+        cancellationViaFutureExample();
+        cancellationViaTimerExample();
+        filePipelineExample(Integer.getInteger("chapter07.fileMb", 256));
+    }
+
+    public static void shutdownHookExample() {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println("I'm executing in a shutdown hook!");
+        }));
+    }
+
+    public static void cancellableThreadExample() throws InterruptedException {
+        Thread cancellableThread = new Thread(Examples.threadCancellation());
+        System.out.println("\n[EXAMPLE #1] Thread cancellation");
+        cancellableThread.start();
+        for (int i = 0; i < 5; i++) {
+            System.out.println("\tMain - Waiting for " + (5-i) + " seconds");
+            Thread.sleep(1000);
+        }
+
+        System.out.println("\tMain - Interrupting thread...");
+        cancellableThread.interrupt();
+        Thread.sleep(5000);
+    }
+
+    public static void threadCancellationViaInterruptionExample() throws InterruptedException {
+        Thread cancellableThread = new Thread(() -> {
+            try {
+                Examples.cancellationViaInterruptedException();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        System.out.println("\n[EXAMPLE #2] Cancellation via Interruption");
+        cancellableThread.start();
+        for (int i = 0; i < 5; i++) {
+            System.out.println("\tMain - Waiting for " + (5-i) + " seconds");
+            Thread.sleep(1000);
+        }
+
+        System.out.println("\tMain - Interrupting thread...");
+        cancellableThread.interrupt();
+        Thread.sleep(5000);
+    }
+
+    public static void cancellationViaFutureExample() throws InterruptedException {
+        System.out.println("\n[EXAMPLE #3] Cancellation via Future");
+        ExecutorService exec = Executors.newCachedThreadPool();
+        Future<?> f = exec.submit(() -> {
+            try {
+                Examples.cancellationViaInterruptedException();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        try {
+            System.out.println("\tMain - starting future with 5s timeout");
+            f.get(5, TimeUnit.SECONDS);
+        } catch (InterruptedException | TimeoutException e) {
+            // fallback to cancelling task
+        } catch (ExecutionException e) {
+            System.out.println("\tThread exited abnormally: " + e.getMessage());
+        } finally {
+            System.out.println("\tMain - cancelling task...");
+            f.cancel(true);
+            exec.shutdown();
+            exec.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    // Same as above, but the deadline is registered with a timing wheel which cancels the task, instead of the
+    // caller doing a timed get. One ticker thread can track the deadlines of any number of futures.
+    public static void cancellationViaTimerExample() throws InterruptedException {
+        System.out.println("\n[EXAMPLE #4] Cancellation via timer");
+        ExecutorService exec = Executors.newCachedThreadPool();
+        Future<?> f = exec.submit(() -> {
+            try {
+                Examples.cancellationViaInterruptedException();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        try (TimingWheel timer = TimingWheel.start()) {
+            System.out.println("\tMain - starting future with a 5s deadline");
+            timer.schedule(() -> f.cancel(true), 5, TimeUnit.SECONDS);
+            f.get();
+        } catch (CancellationException e) {
+            System.out.println("\tMain - deadline reached, task was cancelled");
+        } catch (ExecutionException e) {
+            System.out.println("\tThread exited abnormally: " + e.getMessage());
+        } finally {
+            exec.shutdown();
+            exec.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    // Stream copies vs. the NIO pipeline, both plain & with a transform, then how long a cancelled pipeline takes to
+    // stop - from cancel(true) until its channels are closed & the partial output is deleted.
+    public static void filePipelineExample(int sizeMb) throws InterruptedException, IOException {
+        System.out.println("\n[EXAMPLE #5] Cancellable file pipeline (" + sizeMb + "MB)");
+        Path dir = Files.createTempDirectory("chapter07");
+        Path source = dir.resolve("source");
+        Path streamCopy = dir.resolve("stream-copy");
+        Path zeroCopy = dir.resolve("zero-copy");
+        Path streamTransform = dir.resolve("stream-transform");
+        Path mappedTransform = dir.resolve("mapped-transform");
+        Path cancelled = dir.resolve("cancelled");
+        ExecutorService exec = Executors.newCachedThreadPool();
+        try {
+            writeRandomFile(source, sizeMb);
+
+            // the first round warms up the page cache & the JIT
+            for (int round = 1; round <= 2; round++) {
+                System.out.println("\tMain - round " + round);
+                measureCopy("stream copy", sizeMb, () -> Examples.streamCopy(source, streamCopy, null));
+                measureCopy("zero-copy", sizeMb, new Examples.FilePipeline(source, zeroCopy));
+                measureCopy("stream transform", sizeMb, () -> Examples.streamCopy(source, streamTransform, XOR));
+                measureCopy("mapped transform", sizeMb, new Examples.FilePipeline(source, mappedTransform, XOR));
+            }
+
+            boolean matching = Files.mismatch(source, streamCopy) == -1 && Files.mismatch(source, zeroCopy) == -1 &&
+                    Files.mismatch(streamTransform, mappedTransform) == -1;
+            System.out.println("\tMain - outputs " + (matching ? "match" : "DO NOT match"));
+
+            measureCancellation(exec, "zero-copy", () -> new Examples.FilePipeline(source, cancelled), cancelled);
+            measureCancellation(exec, "mapped transform",
+                    () -> new Examples.FilePipeline(source, cancelled, XOR), cancelled);
+        } finally {
+            exec.shutdown();
+            exec.awaitTermination(5, TimeUnit.SECONDS);
+            for (Path file : new Path[] {source, streamCopy, zeroCopy, streamTransform, mappedTransform, cancelled}) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    private static void writeRandomFile(Path file, int sizeMb) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            for (int i = 0; i < sizeMb; i++) {
+                ThreadLocalRandom.current().nextBytes(buffer.array());
+                buffer.clear();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        }
+    }
+
+    private static void measureCopy(String name, int sizeMb, Callable<Long> copy) throws IOException {
+        ResourceMeter meter = ResourceMeter.start();
+        long start = System.nanoTime();
+        try {
+            copy.call();
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1000000);
+        meter.stop();
+
+        System.out.println("\t\t" + name + " - " + elapsedMs + "ms (" + sizeMb * 1000L / elapsedMs + "MB/s), " +
+                meter.perOp(sizeMb) + " (per MB)");
+    }
+
+    // Cancels each pipeline at a random point after it has started copying. The resources are the ones used from
+    // cancel(true) until the pipeline has wound down (closing the channels & deleting the partial output).
+    private static void measureCancellation(ExecutorService exec, String name,
+                                            Supplier<Examples.FilePipeline> pipelines, Path target)
+            throws InterruptedException, IOException {
+        int attempts = 5;
+        long[] latencies = new long[attempts];
+        int finishedFirstCnt = 0;
+        int leftoversCnt = 0;
+        long allocated = 0;
+        long cpuNanos = 0;
+        for (int i = 0; i < attempts; i++) {
+            Examples.FilePipeline pipeline = pipelines.get();
+            Future<Long> f = exec.submit(pipeline);
+            while (pipeline.getCopiedBytes() == 0 && !f.isDone()) {
+                Thread.yield();
+            }
+            LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(TimeUnit.MILLISECONDS.toNanos(20)));
+
+            ResourceMeter meter = ResourceMeter.start();
+            long start = System.nanoTime();
+            if (!f.cancel(true)) {
+                finishedFirstCnt++;
+            }
+            pipeline.awaitFinished(10, TimeUnit.SECONDS);
+            latencies[i] = System.nanoTime() - start;
+            meter.stop();
+            allocated += meter.getAllocatedBytes();
+            cpuNanos += meter.getCpuNanos();
+
+            if (Files.exists(target.resolveSibling(target.getFileName() + ".part")) ||
+                    f.isCancelled() && Files.exists(target)) {
+                leftoversCnt++;
+            }
+            Files.deleteIfExists(target);
+        }
+
+        Arrays.sort(latencies);
+        System.out.println("\tMain - " + name + " stopped " + latencies[attempts / 2] / 1000 + "us (median), " +
+                latencies[attempts - 1] / 1000 + "us (max) after cancel(true), " +
+                String.format("%.1f B, %.0f CPU-ns per cancellation; ", (double) allocated / attempts,
+                        (double) cpuNanos / attempts) + finishedFirstCnt + " of " + attempts +
+                " finished before the cancellation, " + leftoversCnt + " left partial output behind");
+    }
+}
@@ -0,0 +1,320 @@
+package chapter10;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class Examples {
+    public interface LeftRight {
+        public void leftRight() throws InterruptedException;
+        public void rightLeft() throws InterruptedException;
+    }
+
+    public static class DeadlockExample implements LeftRight {
+        private final Object left = new Object();
+        private final Object right = new Object();
+
+        public void leftRight() throws InterruptedException {
+            synchronized (left) {
+                synchronized (right) {
+                    Thread.sleep(100);
+                }
+            }
+        }
+
+        public void rightLeft() throws InterruptedException {
+            synchronized (right) {
+                synchronized (left) {
+                    Thread.sleep(100);
+                }
+            }
+        }
+    }
+
+    public static class NoDeadlockExample implements LeftRight {
+        private final Object left = new Object();
+        private final Object right = new Object();
+
+        public void leftRight() throws InterruptedException {
+            synchronized (left) {
+                synchronized (right) {
+                    Thread.sleep(100);
+                }
+            }
+        }
+
+        public void rightLeft() throws InterruptedException {
+            synchronized (left) {
+                synchronized (right) {
+                    Thread.sleep(100);
+                }
+            }
+        }
+    }
+
+    // Same transfer, without any locks - both sides are updated by one multi-word CAS, so there's no lock order to
+    // get wrong. The work happens outside of any critical section, only the transfer itself has to be atomic.
+    public static class MultiWordCasExample implements LeftRight {
+        private static final int LEFT = 0;
+        private static final int RIGHT = 1;
+
+        private final MultiWordCasAccounts accounts = new MultiWordCasAccounts(2);
+
+        public void leftRight() throws InterruptedException {
+            Thread.sleep(100);
+            accounts.transfer(LEFT, RIGHT, 1);
+        }
+
+        public void rightLeft() throws InterruptedException {
+            Thread.sleep(100);
+            accounts.transfer(RIGHT, LEFT, 1);
+        }
+    }
+
+    // Transfers between any two of a set of accounts - the general case of LeftRight. When there are many accounts,
+    // concurrent transfers mostly touch disjoint pairs.
+    public interface Accounts {
+        void transfer(int from, int to, long amount);
+
+        // the sum of all balances - transfers must never change it
+        long total();
+    }
+
+    // Both accounts' monitors are taken in index order, like NoDeadlockExample does with left & right
+    public static class OrderedLockingAccounts implements Accounts {
+        private final long[] balances;
+        private final Object[] locks;
+
+        public OrderedLockingAccounts(int accountsCnt) {
+            balances = new long[accountsCnt];
+            locks = new Object[accountsCnt];
+            for (int i = 0; i < accountsCnt; i++) {
+                locks[i] = new Object();
+            }
+        }
+
+        public void transfer(int from, int to, long amount) {
+            synchronized (locks[Math.min(from, to)]) {
+                synchronized (locks[Math.max(from, to)]) {
+                    balances[from] -= amount;
+                    balances[to] += amount;
+                }
+            }
+        }
+
+        public long total() {
+            long total = 0;
+            for (int i = 0; i < balances.length; i++) {
+                synchronized (locks[i]) {
+                    total += balances[i];
+                }
+            }
+
+            return total;
+        }
+    }
+
+    public static class MultiWordCasAccounts implements Accounts {
+        private final MultiWordCas.Ref<Long>[] balances;
+
+        @SuppressWarnings("unchecked")
+        public MultiWordCasAccounts(int accountsCnt) {
+            balances = (MultiWordCas.Ref<Long>[]) new MultiWordCas.Ref<?>[accountsCnt];
+            for (int i = 0; i < accountsCnt; i++) {
+                balances[i] = new MultiWordCas.Ref<>(0L);
+            }
+        }
+
+        public void transfer(int from, int to, long amount) {
+            MultiWordCas.Ref<?>[] refs = {balances[from], balances[to]};
+            while (true) {
+                Long fromBalance = balances[from].get();
+                Long toBalance = balances[to].get();
+                if (MultiWordCas.compareAndSet(refs, new Object[] {fromBalance, toBalance},
+                        new Object[] {fromBalance - amount, toBalance + amount})) {
+                    return;
+                }
+            }
+        }
+
+        // reads all balances atomically - an MCAS which sets every account to its current balance
+        public long total() {
+            while (true) {
+                Object[] snapshot = new Object[balances.length];
+                long total = 0;
+                for (int i = 0; i < balances.length; i++) {
+                    snapshot[i] = balances[i].get();
+                    total += (Long) snapshot[i];
+                }
+
+                if (MultiWordCas.compareAndSet(balances, snapshot, snapshot)) {
+                    return total;
+                }
+            }
+        }
+    }
+
+    // Lock-free multi-word compare-and-swap (Harris, Fraser & Pratt) - sets any group of refs to new values if all of
+    // them still hold the expected ones, atomically. A thread which runs into another thread's operation helps it
+    // finish instead of waiting for it, so there's nothing to deadlock on & a preempted thread never holds up others.
+    //
+    // An operation installs its descriptor into every ref (in a global order, so that helping always makes progress),
+    // decides its outcome with a single CAS, then replaces the descriptor with either the new or the old values.
+    // Installing goes through RDCSS - a CAS which only takes effect while the operation is still undecided - so that
+    // a late helper can't install a descriptor which was decided meanwhile.
+    // Like AtomicReference, values are compared by identity.
+    public static final class MultiWordCas {
+        private static final int UNDECIDED = 0;
+        private static final int SUCCEEDED = 1;
+        private static final int FAILED = 2;
+
+        private static final VarHandle CONTENT;
+        private static final VarHandle STATUS;
+        private static final AtomicLong nextRefId = new AtomicLong();
+
+        static {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                CONTENT = lookup.findVarHandle(Ref.class, "content", Object.class);
+                STATUS = lookup.findVarHandle(Descriptor.class, "status", int.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private MultiWordCas() {
+        }
+
+        public static final class Ref<T> {
+            private final long id = nextRefId.getAndIncrement();
+            // the value, or the descriptor of an operation in progress
+            private volatile Object content;
+
+            public Ref(T initial) {
+                this.content = initial;
+            }
+
+            // operations in progress on this ref are completed first
+            @SuppressWarnings("unchecked")
+            public T get() {
+                while (true) {
+                    Object content = this.content;
+                    if (content instanceof Rdcss) {
+                        ((Rdcss) content).complete();
+                    } else if (content instanceof Descriptor) {
+                        ((Descriptor) content).help();
+                    } else {
+                        return (T) content;
+                    }
+                }
+            }
+        }
+
+        // Sets refs[i] from expected[i] to updates[i], for all i or none. The refs must be distinct.
+        public static boolean compareAndSet(Ref<?>[] refs, Object[] expected, Object[] updates) {
+            int n = refs.length;
+            if (expected.length != n || updates.length != n) {
+                throw new IllegalArgumentException("refs, expected & updates must be of the same length");
+            }
+
+            // insertion sort by id - operations are on a handful of refs
+            Ref<?>[] sortedRefs = refs.clone();
+            Object[] sortedExpected = expected.clone();
+            Object[] sortedUpdates = updates.clone();
+            for (int i = 1; i < n; i++) {
+                Ref<?> ref = sortedRefs[i];
+                Object exp = sortedExpected[i];
+                Object upd = sortedUpdates[i];
+                int j = i - 1;
+                for (; j >= 0 && sortedRefs[j].id > ref.id; j--) {
+                    sortedRefs[j + 1] = sortedRefs[j];
+                    sortedExpected[j + 1] = sortedExpected[j];
+                    sortedUpdates[j + 1] = sortedUpdates[j];
+                }
+                if (j >= 0 && sortedRefs[j] == ref) {
+                    throw new IllegalArgumentException("the same ref can't be updated twice");
+                }
+                sortedRefs[j + 1] = ref;
+                sortedExpected[j + 1] = exp;
+                sortedUpdates[j + 1] = upd;
+            }
+
+            return new Descriptor(sortedRefs, sortedExpected, sortedUpdates).help();
+        }
+
+        private static final class Descriptor {
+            private final Ref<?>[] refs;
+            private final Object[] expected;
+            private final Object[] updates;
+            private volatile int status = UNDECIDED;
+
+            private Descriptor(Ref<?>[] refs, Object[] expected, Object[] updates) {
+                this.refs = refs;
+                this.expected = expected;
+                this.updates = updates;
+            }
+
+            // run by the owner & by anyone who runs into the descriptor - every step is idempotent
+            private boolean help() {
+                if (status == UNDECIDED) {
+                    int outcome = SUCCEEDED;
+                    for (int i = 0; i < refs.length && outcome == SUCCEEDED && status == UNDECIDED; i++) {
+                        while (true) {
+                            Object content = new Rdcss(this, refs[i], expected[i]).run();
+                            if (content instanceof Descriptor && content != this) {
+                                ((Descriptor) content).help();
+                                continue;
+                            }
+
+                            if (content != this && content != expected[i]) {
+                                outcome = FAILED;
+                            }
+                            break;
+                        }
+                    }
+                    STATUS.compareAndSet(this, UNDECIDED, outcome);
+                }
+
+                boolean succeeded = status == SUCCEEDED;
+                for (int i = 0; i < refs.length; i++) {
+                    CONTENT.compareAndSet(refs[i], this, succeeded ? updates[i] : expected[i]);
+                }
+
+                return succeeded;
+            }
+        }
+
+        // Installs the descriptor into the ref if it holds the expected value, as long as the descriptor is undecided
+        private static final class Rdcss {
+            private final Descriptor descriptor;
+            private final Ref<?> ref;
+            private final Object expected;
+
+            private Rdcss(Descriptor descriptor, Ref<?> ref, Object expected) {
+                this.descriptor = descriptor;
+                this.ref = ref;
+                this.expected = expected;
+            }
+
+            // returns what the ref held before - the expected value if it worked
+            private Object run() {
+                while (true) {
+                    Object content = CONTENT.compareAndExchange(ref, expected, this);
+                    if (content instanceof Rdcss) {
+                        ((Rdcss) content).complete();
+                        continue;
+                    }
+
+                    if (content == expected) {
+                        complete();
+                    }
+                    return content;
+                }
+            }
+
+            private void complete() {
+                CONTENT.compareAndSet(ref, this, descriptor.status == UNDECIDED ? descriptor : expected);
+            }
+        }
+    }
+}
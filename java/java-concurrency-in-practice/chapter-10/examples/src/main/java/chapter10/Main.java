@@ -0,0 +1,79 @@
+package chapter10;
+
+import bench.LoadDriver;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+public class Main extends Thread {
+    private static ThreadLocal<Integer> globalCnt = ThreadLocal.withInitial(() -> 0);
+
+    public static void main(String[] args) throws InterruptedException {
+        attemptDeadlock("NoDeadlockExample", Examples.NoDeadlockExample::new, 5, 10);
+        attemptDeadlock("MultiWordCasExample", Examples.MultiWordCasExample::new, 5, 10);
+
+        measureTransfers(Examples.OrderedLockingAccounts::new, 2);
+        measureTransfers(Examples.MultiWordCasAccounts::new, 2);
+        measureTransfers(Examples.OrderedLockingAccounts::new, 1024);
+        measureTransfers(Examples.MultiWordCasAccounts::new, 1024);
+
+        attemptDeadlock("DeadlockExample", Examples.DeadlockExample::new, 5, 10);
+        System.out.println("End of program. If deadlock was present, abrupt shutdown is required.");
+        System.out.println("Alternatively, request a thread dump with \"kill -3 <process_pid>\"");
+    }
+
+    public static void attemptDeadlock(String msg, Supplier<Examples.LeftRight> supplier, int times, int threadsCnt)
+            throws InterruptedException {
+        LoadDriver driver = new LoadDriver().threads(10).timeout(5, TimeUnit.SECONDS);
+        for (int i = 0; i < times; i++) {
+            Examples.LeftRight cls = supplier.get();
+            System.out.println(msg + " - Attempting graceful shutdown...");
+            LoadDriver.Result result = driver.run(threadsCnt, () -> {
+                try {
+                    cls.leftRight();
+                } catch (InterruptedException e) {
+                    currentThread().interrupt();
+                }
+            }, () -> {
+                try {
+                    cls.rightLeft();
+                } catch (InterruptedException e) {
+                    currentThread().interrupt();
+                }
+            });
+
+            if (!result.isCompleted()) {
+                System.out.println(msg + " - couldn't shutdown executor. Deadlock present!");
+            } else {
+                System.out.println(msg + " - Graceful shutdown success - " + result);
+            }
+        }
+    }
+
+    // Random transfers between accountsCnt accounts. With 2 accounts every transfer conflicts with every other one,
+    // with many they mostly touch disjoint pairs - where not taking any locks should pay off. Goes up to 4 threads
+    // per core on purpose: a preempted lock holder stalls everyone waiting for its locks, a preempted MCAS is finished
+    // by whoever runs into it.
+    public static void measureTransfers(IntFunction<Examples.Accounts> factory, int accountsCnt) {
+        int maxThreadsCnt = Runtime.getRuntime().availableProcessors() * 4;
+        for (int threadsCnt = 1; threadsCnt <= maxThreadsCnt; threadsCnt *= 2) {
+            Examples.Accounts accounts = factory.apply(accountsCnt);
+            LoadDriver driver = new LoadDriver().threads(threadsCnt).chunked().warmUp(100000);
+            LoadDriver.Result result = driver.run(1_000_000, () -> {
+                ThreadLocalRandom rand = ThreadLocalRandom.current();
+                int from = rand.nextInt(accountsCnt);
+                int to = rand.nextInt(accountsCnt - 1);
+                if (to >= from) {
+                    to++;
+                }
+                accounts.transfer(from, to, 1 + rand.nextInt(100));
+            });
+
+            long total = accounts.total();
+            System.out.println(accounts.getClass().getName() + " - " + accountsCnt + " accounts, " + threadsCnt +
+                    " threads:\n\t" + result + (total == 0 ? "" : " - TOTAL CHANGED TO " + total));
+        }
+    }
+}
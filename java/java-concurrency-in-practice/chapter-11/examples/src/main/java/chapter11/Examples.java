@@ -0,0 +1,533 @@
+package chapter11;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.regex.Pattern;
+
+public class Examples {
+    public interface LockScopeExample {
+        void addUserLocation(String user, String loc);
+        boolean userLocationMatches(String user, String regexp);
+        void addUserLocations(Map<String, String> userLocations);
+        Set<String> findMatchingUsers(Pattern pattern);
+        LocationChangePublisher changes();
+    }
+
+    public static class BigLockScopeExample implements LockScopeExample {
+        private final Map<String, String> locations = new HashMap<>();
+        private final LocationChangePublisher changes = new LocationChangePublisher();
+
+        // published under the lock, so subscribers see each user's changes in the same order as the store
+        public synchronized void addUserLocation(String user, String loc) {
+            locations.put(user, loc);
+            changes.publish(user, loc);
+        }
+
+        // lock once per batch, readers see either none or all of it
+        public synchronized void addUserLocations(Map<String, String> userLocations) {
+            locations.putAll(userLocations);
+            userLocations.forEach(changes::publish);
+        }
+
+        public LocationChangePublisher changes() {
+            return changes;
+        }
+
+        public synchronized boolean userLocationMatches(String user, String regexp) {
+            String loc = locations.get(user);
+            if (loc == null)
+                return false;
+            else
+                return Pattern.matches(regexp, loc);
+        }
+
+        // writers are blocked for the whole scan
+        public synchronized Set<String> findMatchingUsers(Pattern pattern) {
+            Set<String> users = new HashSet<>();
+            locations.forEach((user, loc) -> {
+                if (pattern.matcher(loc).matches())
+                    users.add(user);
+            });
+
+            return users;
+        }
+    }
+
+    public static class SmallLockScopeExample implements LockScopeExample {
+        private final Map<String, String> locations = new HashMap<>();
+        private final LocationChangePublisher changes = new LocationChangePublisher();
+
+        // published under the lock, so subscribers see each user's changes in the same order as the store
+        public synchronized void addUserLocation(String user, String loc) {
+            locations.put(user, loc);
+            changes.publish(user, loc);
+        }
+
+        // lock once per batch, readers see either none or all of it
+        public synchronized void addUserLocations(Map<String, String> userLocations) {
+            locations.putAll(userLocations);
+            userLocations.forEach(changes::publish);
+        }
+
+        public LocationChangePublisher changes() {
+            return changes;
+        }
+
+        public boolean userLocationMatches(String user, String regexp) {
+            String location;
+            synchronized (this) {
+                location = locations.get(user);
+            }
+
+            if (location == null)
+                return false;
+            else
+                return Pattern.matches(regexp, location);
+        }
+
+        // only the copy is done under the lock, the (much more expensive) matching is done in parallel outside of it
+        public Set<String> findMatchingUsers(Pattern pattern) {
+            Map<String, String> snapshot;
+            synchronized (this) {
+                snapshot = new HashMap<>(locations);
+            }
+
+            return snapshot.entrySet().parallelStream()
+                    .filter(e -> pattern.matcher(e.getValue()).matches())
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toSet());
+        }
+    }
+
+    public static class LockStripingExample implements LockScopeExample {
+        // ConcurrentHashMap implements lock striping. No need to implement your own :))
+        private volatile ConcurrentHashMap<String, String> locations = new ConcurrentHashMap<>();
+
+        // map being built by addUserLocations, single writes have to land in it too so they aren't lost by the swap
+        private volatile ConcurrentHashMap<String, String> pending;
+        private final Object loadLock = new Object();
+        private final LocationChangePublisher changes = new LocationChangePublisher();
+
+        // bulk operations on maps with fewer entries than this aren't worth splitting across threads
+        private static final long PARALLELISM_THRESHOLD = 10000;
+
+        // Events are published inside compute(), i.e. under the bin lock, so subscribers see each user's changes in the
+        // same order as the map. A write racing with a bulk load can be published twice, the last event always
+        // matches the store though.
+        public void addUserLocation(String user, String loc) {
+            while (true) {
+                ConcurrentHashMap<String, String> current = locations;
+                current.compute(user, (u, old) -> publish(u, loc));
+
+                ConcurrentHashMap<String, String> next = pending;
+                if (next != null) {
+                    next.compute(user, (u, old) -> publish(u, loc));
+                    return;
+                }
+
+                // the load finished between the put and the check above - it might have missed our write
+                if (current == locations)
+                    return;
+            }
+        }
+
+        private String publish(String user, String loc) {
+            changes.publish(user, loc);
+            return loc;
+        }
+
+        public boolean userLocationMatches(String user, String regexp) {
+            String location = locations.get(user);
+            if (location == null)
+                return false;
+            else
+                return Pattern.matches(regexp, location);
+        }
+
+        // Merging a batch into the live map would let readers see it half-loaded. Instead, the new map is built
+        // off to the side (batch inserted in parallel into a presized map, then the current entries which the batch
+        // doesn't override) and swapped in with a single volatile write.
+        public void addUserLocations(Map<String, String> userLocations) {
+            synchronized (loadLock) {
+                ConcurrentHashMap<String, String> current = locations;
+                ConcurrentHashMap<String, String> next =
+                        new ConcurrentHashMap<>(current.size() + userLocations.size());
+
+                // from now on single writes go to both maps, so the copy below can't miss them
+                pending = next;
+                userLocations.entrySet().parallelStream().forEach(e -> next.compute(e.getKey(),
+                        (u, old) -> publish(u, e.getValue())));
+                current.forEach(PARALLELISM_THRESHOLD, next::putIfAbsent);
+
+                locations = next;
+                pending = null;
+            }
+        }
+
+        // Splits the map across the fork-join pool it's called from (the common pool by default). The traversal is
+        // weakly consistent - it never blocks writers, and entries changed during it may or may not be reflected.
+        public Set<String> findMatchingUsers(Pattern pattern) {
+            Set<String> users = ConcurrentHashMap.newKeySet();
+            locations.forEach(PARALLELISM_THRESHOLD, (user, loc) -> {
+                if (pattern.matcher(loc).matches())
+                    users.add(user);
+            });
+
+            return users;
+        }
+
+        public LocationChangePublisher changes() {
+            return changes;
+        }
+    }
+
+    // Readers almost never contend with each other, yet with a ReadWriteLock every one of them still CASes the same
+    // reader count. Here, readers mark themselves in a table of padded slots instead, so they don't share any cache
+    // line as long as no writer is around.
+    public static class BravoLockExample implements LockScopeExample {
+        private final Map<String, String> locations = new HashMap<>();
+        private final BravoReadWriteLock lock = new BravoReadWriteLock();
+        private final LocationChangePublisher changes = new LocationChangePublisher();
+
+        public void addUserLocation(String user, String loc) {
+            lock.lockWrite();
+            try {
+                locations.put(user, loc);
+                changes.publish(user, loc);
+            } finally {
+                lock.unlockWrite();
+            }
+        }
+
+        public void addUserLocations(Map<String, String> userLocations) {
+            lock.lockWrite();
+            try {
+                locations.putAll(userLocations);
+                userLocations.forEach(changes::publish);
+            } finally {
+                lock.unlockWrite();
+            }
+        }
+
+        public boolean userLocationMatches(String user, String regexp) {
+            String location;
+            long stamp = lock.lockRead();
+            try {
+                location = locations.get(user);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+
+            if (location == null)
+                return false;
+            else
+                return Pattern.matches(regexp, location);
+        }
+
+        public Set<String> findMatchingUsers(Pattern pattern) {
+            Map<String, String> snapshot;
+            long stamp = lock.lockRead();
+            try {
+                snapshot = new HashMap<>(locations);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+
+            return snapshot.entrySet().parallelStream()
+                    .filter(e -> pattern.matcher(e.getValue()).matches())
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toSet());
+        }
+
+        public LocationChangePublisher changes() {
+            return changes;
+        }
+    }
+
+    // BRAVO (Biased Locking for Reader-Writer Locks) on top of a ReentrantReadWriteLock.
+    // While the lock is read-biased, a reader CASes its thread id into a slot picked by hashing the id & then
+    // re-checks the bias - if it's still on, the reader is in without touching the underlying lock. A writer turns
+    // the bias off & waits for all the slots to drain. As that revocation is expensive, the bias stays off for
+    // a multiple of the time the revocation took, so that write-heavy phases run on the underlying lock only.
+    public static class BravoReadWriteLock {
+        // slots are 128 bytes apart, so that readers in neighbouring slots don't share a cache line
+        private static final int SLOT_STRIDE = 16;
+        private static final int INHIBIT_MULTIPLIER = 9;
+        private static final long SLOW_READ = -1;
+
+        private final ReentrantReadWriteLock underlying = new ReentrantReadWriteLock();
+        private final AtomicLongArray visibleReaders;
+        private final int slotsMask;
+        private volatile boolean readBias = true;
+        // guarded by underlying.writeLock()
+        private long inhibitUntilNanos;
+
+        public BravoReadWriteLock() {
+            int slotsCnt = Integer.highestOneBit(Math.max(64, Runtime.getRuntime().availableProcessors() * 8));
+            visibleReaders = new AtomicLongArray(slotsCnt * SLOT_STRIDE);
+            slotsMask = slotsCnt - 1;
+        }
+
+        // returns the stamp to pass to unlockRead
+        public long lockRead() {
+            if (readBias) {
+                long id = Thread.currentThread().threadId();
+                int idx = slot(id);
+                if (visibleReaders.compareAndSet(idx, 0, id)) {
+                    // pairs with the writer clearing readBias before scanning the slots
+                    if (readBias)
+                        return idx;
+                    visibleReaders.set(idx, 0);
+                }
+            }
+
+            underlying.readLock().lock();
+            // no writer can be active now - a good time to bring the bias back
+            if (!readBias && System.nanoTime() >= inhibitUntilNanos) {
+                readBias = true;
+            }
+            return SLOW_READ;
+        }
+
+        public void unlockRead(long stamp) {
+            if (stamp == SLOW_READ) {
+                underlying.readLock().unlock();
+            } else {
+                visibleReaders.set((int) stamp, 0);
+            }
+        }
+
+        public void lockWrite() {
+            underlying.writeLock().lock();
+            if (readBias) {
+                readBias = false;
+
+                long start = System.nanoTime();
+                for (int i = 0; i < visibleReaders.length(); i += SLOT_STRIDE) {
+                    while (visibleReaders.get(i) != 0) {
+                        Thread.onSpinWait();
+                    }
+                }
+                long now = System.nanoTime();
+                inhibitUntilNanos = now + (now - start) * INHIBIT_MULTIPLIER;
+            }
+        }
+
+        public void unlockWrite() {
+            underlying.writeLock().unlock();
+        }
+
+        private int slot(long threadId) {
+            long h = threadId * 0x9E3779B97F4A7C15L;
+            return (int) ((h >>> 32) & slotsMask) * SLOT_STRIDE;
+        }
+    }
+
+    public static class LocationChange {
+        private final String user;
+        private final String location;
+
+        public LocationChange(String user, String location) {
+            this.user = user;
+            this.location = location;
+        }
+
+        public String getUser() {
+            return user;
+        }
+
+        public String getLocation() {
+            return location;
+        }
+
+        @Override
+        public String toString() {
+            return user + " -> " + location;
+        }
+    }
+
+    // Streams location changes to subscribers without ever blocking the writers. Every subscription has a bounded
+    // buffer - once the subscriber falls behind, changes are either coalesced per user (only the latest location
+    // is kept) or the oldest ones are dropped. Delivery happens on the executor & respects the subscriber's demand.
+    public static class LocationChangePublisher implements Flow.Publisher<LocationChange> {
+        public enum Overflow {
+            // one pending change per user - if more than capacity users are pending, the oldest one is dropped
+            COALESCE,
+            // up to capacity pending changes
+            DROP_OLDEST
+        }
+
+        private final List<LocationSubscription> subscriptions = new CopyOnWriteArrayList<>();
+        private final Executor executor;
+        private final Overflow overflow;
+        private final int capacity;
+        private final AtomicLong droppedCnt = new AtomicLong();
+        private final AtomicLong coalescedCnt = new AtomicLong();
+
+        public LocationChangePublisher() {
+            this(ForkJoinPool.commonPool(), Overflow.COALESCE, Flow.defaultBufferSize());
+        }
+
+        public LocationChangePublisher(Executor executor, Overflow overflow, int capacity) {
+            this.executor = executor;
+            this.overflow = overflow;
+            this.capacity = capacity;
+        }
+
+        public void subscribe(Flow.Subscriber<? super LocationChange> subscriber) {
+            subscribe(subscriber, overflow, capacity);
+        }
+
+        public void subscribe(Flow.Subscriber<? super LocationChange> subscriber, Overflow overflow, int capacity) {
+            LocationSubscription subscription = new LocationSubscription(subscriber, overflow, capacity);
+            subscriptions.add(subscription);
+            subscriber.onSubscribe(subscription);
+        }
+
+        void publish(String user, String location) {
+            for (LocationSubscription subscription : subscriptions) {
+                subscription.offer(user, location);
+            }
+        }
+
+        public long getDroppedCnt() {
+            return droppedCnt.get();
+        }
+
+        public long getCoalescedCnt() {
+            return coalescedCnt.get();
+        }
+
+        private class LocationSubscription implements Flow.Subscription, Runnable {
+            private final Flow.Subscriber<? super LocationChange> subscriber;
+            private final Overflow overflow;
+            private final int capacity;
+
+            // guarded by this - only one of them is used, depending on the overflow policy
+            private final LinkedHashMap<String, String> latest = new LinkedHashMap<>();
+            private final ArrayDeque<LocationChange> pending = new ArrayDeque<>();
+
+            private final AtomicLong requested = new AtomicLong();
+            // number of drain requests - only the one which increments it from 0 schedules the delivery
+            private final AtomicInteger drainsCnt = new AtomicInteger();
+            private volatile boolean cancelled;
+            // signalled by run() rather than by whoever set it, so that onError never overlaps with an onNext
+            private volatile Throwable error;
+
+            LocationSubscription(Flow.Subscriber<? super LocationChange> subscriber, Overflow overflow, int capacity) {
+                this.subscriber = subscriber;
+                this.overflow = overflow;
+                this.capacity = capacity;
+            }
+
+            void offer(String user, String location) {
+                synchronized (this) {
+                    if (overflow == Overflow.COALESCE) {
+                        if (latest.put(user, location) != null) {
+                            coalescedCnt.incrementAndGet();
+                        } else if (latest.size() > capacity) {
+                            Iterator<String> eldest = latest.keySet().iterator();
+                            eldest.next();
+                            eldest.remove();
+                            droppedCnt.incrementAndGet();
+                        }
+                    } else {
+                        if (pending.size() == capacity) {
+                            pending.poll();
+                            droppedCnt.incrementAndGet();
+                        }
+                        pending.add(new LocationChange(user, location));
+                    }
+                }
+
+                drain();
+            }
+
+            private synchronized LocationChange poll() {
+                if (overflow == Overflow.COALESCE) {
+                    Iterator<Map.Entry<String, String>> eldest = latest.entrySet().iterator();
+                    if (!eldest.hasNext())
+                        return null;
+
+                    Map.Entry<String, String> e = eldest.next();
+                    eldest.remove();
+                    return new LocationChange(e.getKey(), e.getValue());
+                } else {
+                    return pending.poll();
+                }
+            }
+
+            public void request(long n) {
+                if (n <= 0) {
+                    if (error == null) {
+                        error = new IllegalArgumentException("non-positive request: " + n);
+                    }
+                    subscriptions.remove(this);
+                    drain();
+                    return;
+                }
+
+                requested.accumulateAndGet(n,
+                        (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+                drain();
+            }
+
+            public void cancel() {
+                cancelled = true;
+                subscriptions.remove(this);
+            }
+
+            private void drain() {
+                if (drainsCnt.getAndIncrement() == 0) {
+                    try {
+                        executor.execute(this);
+                    } catch (RejectedExecutionException e) {
+                        drainsCnt.set(0);
+                    }
+                }
+            }
+
+            // delivers as many pending changes as requested, until no more drain requests came in meanwhile.
+            // An error ends the subscription - it's signalled once, instead of any further changes
+            public void run() {
+                int missed = 1;
+                do {
+                    Throwable e = error;
+                    if (e != null && !cancelled) {
+                        cancelled = true;
+                        subscriber.onError(e);
+                    }
+
+                    while (!cancelled && error == null && requested.get() > 0) {
+                        LocationChange change = poll();
+                        if (change == null)
+                            break;
+
+                        if (requested.get() != Long.MAX_VALUE)
+                            requested.decrementAndGet();
+                        subscriber.onNext(change);
+                    }
+
+                    missed = drainsCnt.addAndGet(-missed);
+                } while (missed != 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package chapter11;
+
+import bench.LoadDriver;
+import bench.PinningMonitor;
+import bench.ResourceMeter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+public class Main extends Thread {
+    private static ThreadLocal<Integer> globalCnt = ThreadLocal.withInitial(() -> 0);
+
+    public static void main(String[] args) throws InterruptedException, BrokenBarrierException {
+        measureLockScopeExample(new Examples.BigLockScopeExample(), 16);
+        measureLockScopeExample(new Examples.SmallLockScopeExample(), 16);
+        measureLockScopeExample(new Examples.LockStripingExample(), 16);
+        measureLockScopeExample(new Examples.BravoLockExample(), 16);
+
+        measureReadScaling(new Examples.BigLockScopeExample());
+        measureReadScaling(new Examples.SmallLockScopeExample());
+        measureReadScaling(new Examples.LockStripingExample());
+        measureReadScaling(new Examples.BravoLockExample());
+
+        measureBulkLoad(Examples.BigLockScopeExample::new, 1_000_000);
+        measureBulkLoad(Examples.SmallLockScopeExample::new, 1_000_000);
+        measureBulkLoad(Examples.LockStripingExample::new, 1_000_000);
+
+        int usersCnt = Integer.getInteger("chapter11.users", 1_000_000);
+        measureFindMatchingUsers(new Examples.BigLockScopeExample(), usersCnt);
+        measureFindMatchingUsers(new Examples.SmallLockScopeExample(), usersCnt);
+        measureFindMatchingUsers(new Examples.LockStripingExample(), usersCnt);
+
+        measureChangeStream(new Examples.BigLockScopeExample(), 1000);
+        measureChangeStream(new Examples.SmallLockScopeExample(), 1000);
+        measureChangeStream(new Examples.LockStripingExample(), 1000);
+    }
+
+    // Writer throughput without & with slow subscribers. The coalescing subscriber must end up with the store's
+    // latest location for every user, even though it couldn't keep up with every change.
+    public static void measureChangeStream(Examples.LockScopeExample example, int usersCnt) throws InterruptedException {
+        List<String> users = new ArrayList<>();
+        for (int i = 0; i < usersCnt; i++) {
+            users.add(UUID.randomUUID().toString());
+        }
+        Runnable write = () -> example.addUserLocation(
+                users.get(ThreadLocalRandom.current().nextInt(usersCnt)), UUID.randomUUID().toString());
+
+        LoadDriver driver = new LoadDriver().threads(4);
+        System.out.println(example.getClass().getName() + " without subscribers:\n\t" + driver.run(50000, write));
+
+        ChangeView coalescing = new ChangeView();
+        ChangeView droppingOldest = new ChangeView();
+        example.changes().subscribe(coalescing, Examples.LocationChangePublisher.Overflow.COALESCE, usersCnt);
+        example.changes().subscribe(droppingOldest, Examples.LocationChangePublisher.Overflow.DROP_OLDEST, usersCnt);
+        System.out.println(example.getClass().getName() + " with slow subscribers:\n\t" + driver.run(50000, write));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        int convergedCnt = 0;
+        while (System.nanoTime() < deadline) {
+            convergedCnt = 0;
+            for (String user : users) {
+                String loc = coalescing.view.get(user);
+                if (loc != null && example.userLocationMatches(user, Pattern.quote(loc)))
+                    convergedCnt++;
+            }
+
+            if (convergedCnt == usersCnt)
+                break;
+            Thread.sleep(10);
+        }
+
+        System.out.println("\tcoalescing subscriber received " + coalescing.receivedCnt.get() + " changes, " +
+                convergedCnt + " of " + usersCnt + " users up to date; drop-oldest subscriber received " +
+                droppingOldest.receivedCnt.get() + " changes; " + example.changes().getCoalescedCnt() +
+                " coalesced, " + example.changes().getDroppedCnt() + " dropped");
+    }
+
+    // a downstream cache, updated incrementally - slower than the writers on purpose
+    private static class ChangeView implements Flow.Subscriber<Examples.LocationChange> {
+        private final Map<String, String> view = new ConcurrentHashMap<>();
+        private final AtomicLong receivedCnt = new AtomicLong();
+
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        public void onNext(Examples.LocationChange change) {
+            LockSupport.parkNanos(50000);
+            view.put(change.getUser(), change.getLocation());
+            receivedCnt.incrementAndGet();
+        }
+
+        public void onError(Throwable throwable) {
+            throwable.printStackTrace();
+        }
+
+        public void onComplete() {
+        }
+    }
+
+    // runs the query in fork-join pools of growing size, to see how it scales with the number of cores
+    public static void measureFindMatchingUsers(Examples.LockScopeExample example, int usersCnt)
+            throws InterruptedException {
+        Map<String, String> userLocations = new HashMap<>();
+        for (int i = 0; i < usersCnt; i++) {
+            userLocations.put(UUID.randomUUID().toString(), UUID.randomUUID().toString());
+        }
+        example.addUserLocations(userLocations);
+
+        // ~1/16 of the locations start with a 0
+        Pattern pattern = Pattern.compile("0[0-9a-f]{7}-.*");
+        int maxParallelism = Runtime.getRuntime().availableProcessors();
+        for (int parallelism = 1; parallelism <= maxParallelism; parallelism *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                ResourceMeter meter = ResourceMeter.start();
+                long start = System.nanoTime();
+                int matchesCnt = pool.submit(() -> example.findMatchingUsers(pattern)).get().size();
+                long elapsedMs = (System.nanoTime() - start) / 1000000;
+                meter.stop();
+
+                System.out.println(example.getClass().getName() + " - " + matchesCnt + " of " + usersCnt +
+                        " users matching with parallelism " + parallelism + " in " + elapsedMs + "ms, " +
+                        meter.perOp(usersCnt) + " (per user scanned)");
+            } catch (ExecutionException e) {
+                e.printStackTrace();
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    // Read throughput with 1% writes, from a single thread up to one per core.
+    // Chunked, so that the threads contend on the store rather than on the executor's queue
+    public static void measureReadScaling(Examples.LockScopeExample example) {
+        List<String> users = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            users.add(UUID.randomUUID().toString());
+            example.addUserLocation(users.get(i), UUID.randomUUID().toString());
+        }
+
+        Runnable op = () -> {
+            ThreadLocalRandom rand = ThreadLocalRandom.current();
+            String user = users.get(rand.nextInt(users.size()));
+            if (rand.nextInt(100) == 0)
+                example.addUserLocation(user, UUID.randomUUID().toString());
+            else
+                example.userLocationMatches(user, "0.*");
+        };
+
+        int maxThreadsCnt = Runtime.getRuntime().availableProcessors();
+        for (int threadsCnt = 1; threadsCnt <= maxThreadsCnt; threadsCnt *= 2) {
+            LoadDriver.Result result = new LoadDriver().threads(threadsCnt).chunked().warmUp(50000).run(200000, op);
+            System.out.println(example.getClass().getName() + " - " + threadsCnt + " threads:\n\t" + result);
+        }
+    }
+
+    // one addUserLocation call per user vs. a single addUserLocations call, each on an empty store
+    public static void measureBulkLoad(Supplier<Examples.LockScopeExample> factory, int usersCnt) {
+        Map<String, String> userLocations = new HashMap<>();
+        for (int i = 0; i < usersCnt; i++) {
+            userLocations.put(UUID.randomUUID().toString(), UUID.randomUUID().toString());
+        }
+
+        Examples.LockScopeExample example = factory.get();
+        ResourceMeter oneByOne = ResourceMeter.start();
+        long start = System.nanoTime();
+        userLocations.forEach(example::addUserLocation);
+        long oneByOneMs = (System.nanoTime() - start) / 1000000;
+        oneByOne.stop();
+
+        example = factory.get();
+        ResourceMeter bulk = ResourceMeter.start();
+        start = System.nanoTime();
+        example.addUserLocations(userLocations);
+        long bulkMs = (System.nanoTime() - start) / 1000000;
+        bulk.stop();
+
+        System.out.println(example.getClass().getName() + " - loading " + usersCnt + " users one by one = " +
+                oneByOneMs + "ms (" + oneByOne.perOp(usersCnt) + "), in bulk = " + bulkMs + "ms (" +
+                bulk.perOp(usersCnt) + ")");
+    }
+
+    public static void measureLockScopeExample(Examples.LockScopeExample example, int threadsCnt)
+            throws InterruptedException, BrokenBarrierException {
+        LoadDriver.ExecutorType executorType = LoadDriver.ExecutorType.fromSystemProperty();
+        PinningMonitor pinning = executorType == LoadDriver.ExecutorType.VIRTUAL_THREADS ? PinningMonitor.start() : null;
+        ExecutorService exec = executorType.newExecutor(threadsCnt);
+
+        BlockingQueue<Long> queue = new LinkedBlockingQueue<>();
+        CyclicBarrier barrier = new CyclicBarrier(threadsCnt+1);
+        for (int i = 0; i < threadsCnt; i++) {
+            exec.execute(() -> {
+                List<String> users = new ArrayList<>();
+                List<String> patterns = new ArrayList<>();
+                for (int j = 0; j < 10000; j++) {
+                    users.add(UUID.randomUUID().toString());
+                    example.addUserLocation(users.get(users.size() - 1), UUID.randomUUID().toString());
+                    patterns.add(UUID.randomUUID().toString());
+                }
+
+                try {
+                    barrier.await();
+                } catch (InterruptedException e) {
+                    currentThread().interrupt();
+                } catch (BrokenBarrierException e) {
+                    e.printStackTrace();
+                }
+
+                long start = System.nanoTime();
+                int seed = (int)System.nanoTime();
+                for (int j = 0; j < 50000; j++) {
+                    int rand1 = nextRand(seed) % users.size();
+                    seed = nextRand(seed);
+
+                    int rand2 = nextRand(seed) % users.size();
+                    seed = nextRand(seed);
+
+                    example.userLocationMatches(users.get(rand1), patterns.get(rand2));
+                }
+
+                long total = (System.nanoTime() - start) / 1000000; // milliseconds
+                try {
+                    barrier.await();
+                    queue.put(total);
+                } catch (InterruptedException e) {
+                    currentThread().interrupt();
+                } catch (BrokenBarrierException e) {
+                    e.printStackTrace();
+                }
+            });
+        }
+
+        // the users & patterns are generated before the first barrier, so only the lookups are metered
+        barrier.await();
+        ResourceMeter meter = ResourceMeter.start();
+        barrier.await();
+        meter.stop();
+
+        exec.shutdown();
+        exec.awaitTermination(5, TimeUnit.SECONDS);
+        int averageTime = 0;
+        for (int i = 0; i < threadsCnt; i++) {
+            averageTime += queue.take();
+        }
+
+        String pinnedMsg = "";
+        if (pinning != null) {
+            pinning.stop();
+            pinnedMsg = ", pinned " + pinning.getPinnedCnt() + " times";
+            pinning.close();
+        }
+
+        System.out.println(example.getClass().getName() + " [" + executorType + "]" +
+                " - average time per task = " + averageTime/threadsCnt + "ms, " + meter.perOp(threadsCnt * 50000L) +
+                pinnedMsg);
+    }
+
+    private static int nextRand(int y) {
+        y ^= (y << 6);
+        y ^= (y >>> 21);
+        y ^= (y << 7);
+
+        return Math.abs(y);
+    }
+
+}
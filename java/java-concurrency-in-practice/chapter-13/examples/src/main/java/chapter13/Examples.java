@@ -0,0 +1,433 @@
+package chapter13;
+
+import bench.TimingWheel;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+public class Examples {
+    // Shared by all retry backoffs & lock time budgets - a single ticker thread, instead of a timed park per waiter
+    static final TimingWheel TIMER = TimingWheel.start();
+
+    public static class DeadlockPrevention {
+        private final Lock left = new ReentrantLock();
+        private final Lock right = new ReentrantLock();
+        private ThreadLocal<Integer> failedLocksCnt = ThreadLocal.withInitial(() -> 0);
+
+        public void leftRight() {
+            doubleLock(left, right);
+        }
+
+        public void rightLeft() {
+            doubleLock(right, left);
+        }
+
+        private void doubleLock(Lock first, Lock second) {
+            withTimeout(() -> attemptLocks(first, second), 1);
+            System.out.printf("\t%s - retried %d times before succeeding...\n",
+                    Thread.currentThread().getName(),
+                    failedLocksCnt.get());
+        }
+
+        private boolean attemptLocks(Lock first, Lock second) {
+            if (first.tryLock()) {
+                try {
+                    if (second.tryLock()) {
+                        try {
+                            Thread.sleep(100);
+                            return true;
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            second.unlock();
+                        }
+                    } else {
+                        failedLocksCnt.set(failedLocksCnt.get()+1);
+                    }
+                } finally {
+                    first.unlock();
+                }
+            } else {
+                failedLocksCnt.set(failedLocksCnt.get()+1);
+            }
+
+            return false;
+        }
+
+        private void withTimeout(Supplier<Boolean> s, int timeoutInS) {
+            long stopTime = System.nanoTime() + (timeoutInS * 1_000_000_000);
+            Random rand = new Random();
+            int cnt = 0;
+            while (!s.get()) {
+                if (System.nanoTime() <= stopTime) {
+                    break;
+                }
+
+                try {
+                    TIMER.sleep(20 + rand.nextInt(20), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    public static class InterruptibleLock {
+        private final Lock lock = new ReentrantLock();
+
+        public void acquireLock() {
+            lock.lock();
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public void acquireLockInterruptibly() {
+            try {
+                lock.lockInterruptibly();
+                // do something with lock held...
+            } catch (InterruptedException e) {
+                System.out.println(Thread.currentThread().getName() +
+                        " - Interruptible lock got interrupted...");
+                Thread.currentThread().interrupt();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public static class TimeBudget {
+        private final Lock lock = new ReentrantLock();
+
+        public void acquireLock() {
+            lock.lock();
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public void acquireLockWithTimeout(int timeoutInS) throws InterruptedException {
+            if (!lock.tryLock(timeoutInS, TimeUnit.SECONDS)) {
+                System.out.println(Thread.currentThread().getName() +
+                        " - Timeout for acquiring lock reached. Exiting gracefully...");
+                return;
+            }
+
+            try {
+                System.out.println("Lock acquired successfully in allocated time budget!");
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Same as above, but the time budget is enforced by the shared timer interrupting the waiter,
+        // so that waiting threads don't need a timed park each.
+        public void acquireLockWithTimer(int timeoutInS) throws InterruptedException {
+            Thread current = Thread.currentThread();
+            TimingWheel.Timeout timeout = TIMER.schedule(current::interrupt, timeoutInS, TimeUnit.SECONDS);
+            try {
+                lock.lockInterruptibly();
+            } catch (InterruptedException e) {
+                if (timeout.cancel()) {
+                    // interrupted by someone else
+                    throw e;
+                }
+
+                System.out.println(Thread.currentThread().getName() +
+                        " - Timeout for acquiring lock reached. Exiting gracefully...");
+                return;
+            }
+
+            if (!timeout.cancel()) {
+                // the budget ran out just as the lock was acquired - clear the timer's interrupt
+                Thread.interrupted();
+            }
+
+            try {
+                System.out.println("Lock acquired successfully in allocated time budget!");
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Locks any set of named resources without deadlocks & without blind retries. Every transaction gets a timestamp
+    // when it starts, & conflicts are resolved by age:
+    // - WAIT_DIE - an older transaction waits for a younger one, a younger one dies (aborts) instead of waiting,
+    // - WOUND_WAIT - an older transaction wounds (aborts) a younger one, a younger one waits for an older one.
+    // Either way, waits only go in one direction of age, so there can't be a cycle. Aborted transactions restart with
+    // their original timestamp, so they eventually become the oldest & can't be starved.
+    public static class LockManager {
+        public enum Policy {
+            WAIT_DIE,
+            WOUND_WAIT
+        }
+
+        private final Policy policy;
+        private final AtomicLong timestamps = new AtomicLong();
+        // the lock table is small & its critical sections short, so a single lock guards all of it
+        private final Lock lock = new ReentrantLock();
+        private final Map<String, Resource> resources = new HashMap<>();
+
+        private final LongAdder commitsCnt = new LongAdder();
+        private final LongAdder abortsCnt = new LongAdder();
+        private final LongAdder waitsCnt = new LongAdder();
+
+        public LockManager(Policy policy) {
+            this.policy = policy;
+        }
+
+        // Runs body with all the resources locked, in whatever order they're given
+        public void execute(Collection<String> resourceNames, Runnable body) throws InterruptedException {
+            Transaction tx = new Transaction(timestamps.incrementAndGet());
+            while (true) {
+                boolean acquired = false;
+                try {
+                    for (String name : resourceNames) {
+                        acquire(tx, name);
+                    }
+                    startShrinking(tx);
+                    acquired = true;
+                } catch (AbortedException e) {
+                    abortsCnt.increment();
+                } finally {
+                    if (!acquired)
+                        releaseAll(tx);
+                }
+
+                if (acquired) {
+                    try {
+                        body.run();
+                    } finally {
+                        releaseAll(tx);
+                    }
+                    commitsCnt.increment();
+                    return;
+                }
+
+                awaitRestart(tx);
+            }
+        }
+
+        public long getCommitsCnt() {
+            return commitsCnt.sum();
+        }
+
+        public long getAbortsCnt() {
+            return abortsCnt.sum();
+        }
+
+        public long getWaitsCnt() {
+            return waitsCnt.sum();
+        }
+
+        private void acquire(Transaction tx, String name) throws InterruptedException {
+            lock.lock();
+            try {
+                Resource resource = resources.computeIfAbsent(name, n -> new Resource(lock.newCondition()));
+                while (true) {
+                    if (tx.wounded)
+                        throw AbortedException.INSTANCE;
+
+                    Transaction owner = resource.owner;
+                    // a free resource has no waiters - releaseAll() hands it to the oldest one
+                    if (owner == null) {
+                        resource.owner = tx;
+                        tx.held.add(resource);
+                        return;
+                    }
+
+                    if (owner == tx)
+                        return;
+
+                    if (policy == Policy.WAIT_DIE) {
+                        if (tx.timestamp > owner.timestamp) {
+                            tx.killedBy = resource;
+                            tx.killer = owner;
+                            throw AbortedException.INSTANCE;
+                        }
+                    } else if (tx.timestamp < owner.timestamp && owner.growing) {
+                        wound(owner);
+                    }
+
+                    waitsCnt.increment();
+                    tx.waitingOn = resource;
+                    resource.waiters.add(tx);
+                    try {
+                        resource.released.await();
+                    } finally {
+                        tx.waitingOn = null;
+                        // unless it was handed the resource, in which case releaseAll() dequeued it already
+                        if (resource.owner != tx)
+                            resource.waiters.remove(tx);
+                    }
+
+                    if (resource.owner == tx)
+                        return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // A transaction which holds all its locks can't be wounded anymore - older ones wait for it to finish instead
+        private void startShrinking(Transaction tx) {
+            lock.lock();
+            try {
+                if (tx.wounded)
+                    throw AbortedException.INSTANCE;
+
+                tx.growing = false;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // The victim aborts at its next lock operation, or right away if it's waiting for one
+        private void wound(Transaction victim) {
+            victim.wounded = true;
+            if (victim.waitingOn != null)
+                victim.waitingOn.released.signalAll();
+        }
+
+        private void releaseAll(Transaction tx) {
+            lock.lock();
+            try {
+                // Handing the resource over, instead of letting the waiters race for it, keeps restarted transactions
+                // from barging in front of the older ones they just lost to - they'd just be aborted again.
+                for (Resource resource : tx.held) {
+                    Transaction next = resource.waiters.poll();
+                    resource.owner = next;
+                    if (next != null)
+                        next.held.add(resource);
+                    resource.released.signalAll();
+                }
+                tx.held.clear();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // A transaction which died would most likely die on the same resource again if restarted right away.
+        // Instead of spinning, it waits until the transaction which killed it let go of the resource.
+        private void awaitRestart(Transaction tx) throws InterruptedException {
+            lock.lock();
+            try {
+                if (tx.killedBy != null) {
+                    while (tx.killedBy.owner == tx.killer) {
+                        tx.killedBy.released.await();
+                    }
+                }
+
+                tx.killedBy = null;
+                tx.killer = null;
+                tx.wounded = false;
+                tx.growing = true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // all fields are guarded by the manager's lock
+        private static class Resource {
+            private final Condition released;
+            private final PriorityQueue<Transaction> waiters =
+                    new PriorityQueue<>(Comparator.comparingLong((Transaction tx) -> tx.timestamp));
+            private Transaction owner;
+
+            Resource(Condition released) {
+                this.released = released;
+            }
+        }
+
+        private static class Transaction {
+            private final long timestamp;
+            private final List<Resource> held = new ArrayList<>();
+            private boolean growing = true;
+            private boolean wounded;
+            private Resource waitingOn;
+            private Resource killedBy;
+            private Transaction killer;
+
+            Transaction(long timestamp) {
+                this.timestamp = timestamp;
+            }
+        }
+
+        // Thrown often & always caught internally, so it's preallocated & without a stack trace
+        private static class AbortedException extends RuntimeException {
+            private static final AbortedException INSTANCE = new AbortedException();
+
+            private AbortedException() {
+                super(null, null, false, false);
+            }
+        }
+    }
+
+    // DeadlockPrevention's approach for any number of resources - tryLock them all, & if any of them is taken,
+    // let go of everything & retry after a random back-off.
+    public static class RetryLockManager {
+        private final Map<String, Lock> locks = new ConcurrentHashMap<>();
+        private final LongAdder commitsCnt = new LongAdder();
+        private final LongAdder retriesCnt = new LongAdder();
+
+        public void execute(Collection<String> resourceNames, Runnable body) throws InterruptedException {
+            List<Lock> held = new ArrayList<>();
+            while (true) {
+                for (String name : resourceNames) {
+                    Lock l = locks.computeIfAbsent(name, n -> new ReentrantLock());
+                    if (!l.tryLock())
+                        break;
+                    held.add(l);
+                }
+
+                if (held.size() == resourceNames.size()) {
+                    try {
+                        body.run();
+                    } finally {
+                        held.forEach(Lock::unlock);
+                    }
+                    commitsCnt.increment();
+                    return;
+                }
+
+                held.forEach(Lock::unlock);
+                held.clear();
+                retriesCnt.increment();
+                TIMER.sleep(1 + ThreadLocalRandom.current().nextInt(2), TimeUnit.MILLISECONDS);
+            }
+        }
+
+        public long getCommitsCnt() {
+            return commitsCnt.sum();
+        }
+
+        public long getRetriesCnt() {
+            return retriesCnt.sum();
+        }
+    }
+}
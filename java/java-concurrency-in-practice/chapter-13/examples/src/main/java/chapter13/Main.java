@@ -0,0 +1,253 @@
+package chapter13;
+
+import bench.LoadDriver;
+import bench.ResourceMeter;
+import bench.TimingWheel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+public class Main extends Thread {
+    private static boolean isStopped = false;
+
+    public static void main(String[] args) throws InterruptedException {
+        attemptDeadlock("DeadlockPrevention", Examples.DeadlockPrevention::new, 5, 10);
+        testInterruptibleLock();
+        testLockWithTimeBudget();
+        testLockWithTimer();
+        testClosingTimer();
+
+        measureTimers(200_000);
+
+        for (int resourcesCnt : new int[] {2, 8, 64}) {
+            measureLockManagers(resourcesCnt, 16, 5000);
+        }
+    }
+
+    // Every transaction locks up to 4 random resources, in random order, & holds them for ~20us
+    public static void measureLockManagers(int resourcesCnt, int threadsCnt, int transactionsCnt) {
+        System.out.printf("\nMeasuring lock managers with %d resources, %d threads...\n", resourcesCnt, threadsCnt);
+        int lockedCnt = Math.min(4, resourcesCnt);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < resourcesCnt; i++) {
+            names.add("resource-" + i);
+        }
+
+        Supplier<List<String>> pick = () -> {
+            List<String> shuffled = new ArrayList<>(names);
+            Collections.shuffle(shuffled, ThreadLocalRandom.current());
+            return shuffled.subList(0, lockedCnt);
+        };
+        Runnable body = () -> LockSupport.parkNanos(20_000);
+        LoadDriver driver = new LoadDriver().threads(threadsCnt).chunked().timeout(2, TimeUnit.MINUTES);
+
+        Examples.RetryLockManager retrying = new Examples.RetryLockManager();
+        LoadDriver.Result result =
+                driver.run(transactionsCnt, uninterruptibly(() -> retrying.execute(pick.get(), body)));
+        System.out.printf("\ttryLock & back-off - %s, %.2f retries per commit\n",
+                result, (double) retrying.getRetriesCnt() / retrying.getCommitsCnt());
+
+        for (Examples.LockManager.Policy policy : Examples.LockManager.Policy.values()) {
+            Examples.LockManager manager = new Examples.LockManager(policy);
+            result = driver.run(transactionsCnt, uninterruptibly(() -> manager.execute(pick.get(), body)));
+            System.out.printf("\t%s - %s, %.2f aborts & %.2f waits per commit\n", policy, result,
+                    (double) manager.getAbortsCnt() / manager.getCommitsCnt(),
+                    (double) manager.getWaitsCnt() / manager.getCommitsCnt());
+        }
+    }
+
+    private interface InterruptibleAction {
+        void run() throws InterruptedException;
+    }
+
+    private static Runnable uninterruptibly(InterruptibleAction action) {
+        return () -> {
+            try {
+                action.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
+    public static void attemptDeadlock(String msg, Supplier<Examples.DeadlockPrevention> supplier, int times, int threadsCnt)
+            throws InterruptedException {
+        LoadDriver driver = new LoadDriver().threads(10).timeout(5, TimeUnit.SECONDS);
+        for (int i = 0; i < times; i++) {
+            Examples.DeadlockPrevention cls = supplier.get();
+            System.out.println(msg + " - Attempting graceful shutdown...");
+
+            LoadDriver.Result result = driver.run(threadsCnt, cls::leftRight, cls::rightLeft);
+            if (!result.isCompleted()) {
+                System.out.println(msg + " - couldn't shutdown executor. Deadlock present!");
+            } else {
+                System.out.println(msg + " - Graceful shutdown success - " + result);
+            }
+        }
+    }
+
+    public static void testInterruptibleLock() throws InterruptedException {
+        System.out.println("\nTesting interruptible lock...");
+        Examples.InterruptibleLock interruptibleLock = new Examples.InterruptibleLock();
+        ExecutorService exec = Executors.newCachedThreadPool();
+
+        exec.execute(interruptibleLock::acquireLock);
+        Thread.sleep(100);
+        Future<?> f = exec.submit(interruptibleLock::acquireLockInterruptibly);
+
+        Thread.sleep(500);
+        f.cancel(true);
+
+        exec.shutdown();
+        exec.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    public static void testLockWithTimeBudget() throws InterruptedException {
+        System.out.println("\nTesting lock with time budget...");
+        Examples.TimeBudget timeBudgetExample = new Examples.TimeBudget();
+        ExecutorService exec = Executors.newCachedThreadPool();
+
+        exec.execute(timeBudgetExample::acquireLock);
+        Thread.sleep(100);
+        Future<?> f = exec.submit(() -> {
+            try {
+                timeBudgetExample.acquireLockWithTimeout(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        Thread.sleep(5000);
+        exec.shutdown();
+        exec.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    public static void testLockWithTimer() throws InterruptedException {
+        System.out.println("\nTesting lock with time budget enforced by the timing wheel...");
+        Examples.TimeBudget timeBudgetExample = new Examples.TimeBudget();
+        ExecutorService exec = Executors.newCachedThreadPool();
+
+        exec.execute(timeBudgetExample::acquireLock);
+        Thread.sleep(100);
+        exec.execute(() -> {
+            try {
+                timeBudgetExample.acquireLockWithTimer(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        Thread.sleep(5000);
+        exec.shutdown();
+        exec.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    // A thread sleeping on the wheel when it's closed must be woken up - its timeout is dropped & would never fire
+    public static void testClosingTimer() throws InterruptedException {
+        System.out.println("\nTesting closing the timing wheel while a thread sleeps on it...");
+        TimingWheel wheel = TimingWheel.start();
+        CountDownLatch woken = new CountDownLatch(1);
+        Thread sleeper = new Thread(() -> {
+            try {
+                wheel.sleep(1, TimeUnit.HOURS);
+                System.out.println("\tSleeper - woke up after an hour?!");
+            } catch (IllegalStateException e) {
+                System.out.println("\tSleeper - " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            woken.countDown();
+        });
+        sleeper.start();
+
+        Thread.sleep(100);
+        wheel.close();
+        if (!woken.await(5, TimeUnit.SECONDS)) {
+            System.out.println("\tSleeper is still parked after close()!");
+            sleeper.interrupt();
+        }
+    }
+
+    // Timing wheel vs. ScheduledThreadPoolExecutor with timersCnt outstanding timers:
+    // - schedule & cancel cost of timeouts which never fire (the common case for lock timeouts),
+    // - how late timers fire when all of them are due within 200ms.
+    public static void measureTimers(int timersCnt) throws InterruptedException {
+        System.out.println("\nMeasuring " + timersCnt + " outstanding timers...");
+        for (int round = 0; round < 2; round++) {
+            // the first round is a warm-up
+            boolean print = round == 1;
+
+            TimingWheel wheel = TimingWheel.start();
+            measureTimers("TimingWheel", timersCnt, print, (task, delayNanos) -> {
+                TimingWheel.Timeout timeout = wheel.schedule(task, delayNanos, TimeUnit.NANOSECONDS);
+                return timeout::cancel;
+            });
+            wheel.close();
+
+            ScheduledThreadPoolExecutor stpe = new ScheduledThreadPoolExecutor(1);
+            stpe.setRemoveOnCancelPolicy(true);
+            measureTimers("ScheduledThreadPoolExecutor", timersCnt, print, (task, delayNanos) -> {
+                ScheduledFuture<?> f = stpe.schedule(task, delayNanos, TimeUnit.NANOSECONDS);
+                return () -> f.cancel(false);
+            });
+            stpe.shutdownNow();
+        }
+    }
+
+    private interface Timer {
+        // returns the cancellation of the scheduled task
+        Runnable schedule(Runnable task, long delayNanos);
+    }
+
+    private static void measureTimers(String name, int timersCnt, boolean print, Timer timer)
+            throws InterruptedException {
+        ThreadLocalRandom rand = ThreadLocalRandom.current();
+        Runnable[] cancellations = new Runnable[timersCnt];
+        ResourceMeter scheduling = ResourceMeter.start();
+        long start = System.nanoTime();
+        for (int i = 0; i < timersCnt; i++) {
+            long delay = TimeUnit.SECONDS.toNanos(1) + rand.nextLong(TimeUnit.SECONDS.toNanos(10));
+            cancellations[i] = timer.schedule(() -> {}, delay);
+        }
+        long scheduleNanos = (System.nanoTime() - start) / timersCnt;
+        scheduling.stop();
+
+        ResourceMeter cancelling = ResourceMeter.start();
+        start = System.nanoTime();
+        for (Runnable cancellation : cancellations) {
+            cancellation.run();
+        }
+        long cancelNanos = (System.nanoTime() - start) / timersCnt;
+        cancelling.stop();
+
+        long[] lateness = new long[timersCnt];
+        CountDownLatch fired = new CountDownLatch(timersCnt);
+        for (int i = 0; i < timersCnt; i++) {
+            int idx = i;
+            long delay = rand.nextLong(TimeUnit.MILLISECONDS.toNanos(200));
+            long due = System.nanoTime() + delay;
+            timer.schedule(() -> {
+                lateness[idx] = System.nanoTime() - due;
+                fired.countDown();
+            }, delay);
+        }
+
+        if (!fired.await(30, TimeUnit.SECONDS)) {
+            System.out.println("\t" + name + " - timers didn't fire in time!");
+            return;
+        }
+
+        if (print) {
+            Arrays.sort(lateness);
+            System.out.println("\t" + name + " - schedule = " + scheduleNanos + "ns (" +
+                    scheduling.perOp(timersCnt) + "), cancel = " + cancelNanos + "ns (" +
+                    cancelling.perOp(timersCnt) + "), fired late by p50 = " + lateness[timersCnt / 2] / 1000 + "us, p99 = " +
+                    lateness[timersCnt * 99 / 100] / 1000 + "us");
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package chapter14;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.II_Result;
+
+// Two threads each push a value & then pop one from the same stack. Every pop follows its own push, so neither
+// blocks, and between them they must get back both values - which one each gets depends on the interleaving.
+// A duplicated value shows up as the same value popped twice, a lost one leaves a pop waiting - jcstress reports
+// that test as stuck.
+public class StackTests {
+
+    @JCStressTest
+    @Outcome(id = {"1, 2", "2, 1"}, expect = Expect.ACCEPTABLE, desc = "Each value was popped once")
+    @Outcome(expect = Expect.FORBIDDEN, desc = "Lost or duplicated value")
+    @State
+    public static class IntrinsicConditionQueueTest {
+        private final Examples.Stack<Integer> stack = new Examples.IntrinsicConditionQueue<>(2);
+
+        @Actor
+        public void actor1(II_Result r) {
+            r.r1 = pushPop(stack, 1);
+        }
+
+        @Actor
+        public void actor2(II_Result r) {
+            r.r2 = pushPop(stack, 2);
+        }
+    }
+
+    @JCStressTest
+    @Outcome(id = {"1, 2", "2, 1"}, expect = Expect.ACCEPTABLE, desc = "Each value was popped once")
+    @Outcome(expect = Expect.FORBIDDEN, desc = "Lost or duplicated value")
+    @State
+    public static class ExplicitConditionQueueTest {
+        private final Examples.Stack<Integer> stack = new Examples.ExplicitConditionQueue<>(2);
+
+        @Actor
+        public void actor1(II_Result r) {
+            r.r1 = pushPop(stack, 1);
+        }
+
+        @Actor
+        public void actor2(II_Result r) {
+            r.r2 = pushPop(stack, 2);
+        }
+    }
+
+    @JCStressTest
+    @Outcome(id = {"1, 2", "2, 1"}, expect = Expect.ACCEPTABLE, desc = "Each value was popped once")
+    @Outcome(expect = Expect.FORBIDDEN, desc = "Lost or duplicated value")
+    @State
+    public static class AQSTest {
+        private final Examples.Stack<Integer> stack = new Examples.AQS<>(2);
+
+        @Actor
+        public void actor1(II_Result r) {
+            r.r1 = pushPop(stack, 1);
+        }
+
+        @Actor
+        public void actor2(II_Result r) {
+            r.r2 = pushPop(stack, 2);
+        }
+    }
+
+    @JCStressTest
+    @Outcome(id = {"1, 2", "2, 1"}, expect = Expect.ACCEPTABLE, desc = "Each value was popped once")
+    @Outcome(expect = Expect.FORBIDDEN, desc = "Lost or duplicated value")
+    @State
+    public static class CasSlotAQSTest {
+        private final Examples.Stack<Integer> stack = new Examples.CasSlotAQS<>(2);
+
+        @Actor
+        public void actor1(II_Result r) {
+            r.r1 = pushPop(stack, 1);
+        }
+
+        @Actor
+        public void actor2(II_Result r) {
+            r.r2 = pushPop(stack, 2);
+        }
+    }
+
+    @JCStressTest
+    @Outcome(id = {"1, 2", "2, 1"}, expect = Expect.ACCEPTABLE, desc = "Each value was popped once")
+    @Outcome(expect = Expect.FORBIDDEN, desc = "Lost or duplicated value")
+    @State
+    public static class TargetedConditionQueueTest {
+        private final Examples.Stack<Integer> stack = new Examples.TargetedConditionQueue<>(2);
+
+        @Actor
+        public void actor1(II_Result r) {
+            r.r1 = pushPop(stack, 1);
+        }
+
+        @Actor
+        public void actor2(II_Result r) {
+            r.r2 = pushPop(stack, 2);
+        }
+    }
+
+    @JCStressTest
+    @Outcome(id = {"1, 2", "2, 1"}, expect = Expect.ACCEPTABLE, desc = "Each value was popped once")
+    @Outcome(expect = Expect.FORBIDDEN, desc = "Lost or duplicated value")
+    @State
+    public static class FlatCombiningStackTest {
+        private final Examples.Stack<Integer> stack = new Examples.FlatCombiningStack<>(2);
+
+        @Actor
+        public void actor1(II_Result r) {
+            r.r1 = pushPop(stack, 1);
+        }
+
+        @Actor
+        public void actor2(II_Result r) {
+            r.r2 = pushPop(stack, 2);
+        }
+    }
+
+    @JCStressTest
+    @Outcome(id = {"1, 2", "2, 1"}, expect = Expect.ACCEPTABLE, desc = "Each value was popped once")
+    @Outcome(expect = Expect.FORBIDDEN, desc = "Lost or duplicated value")
+    @State
+    public static class AsyncStackTest {
+        private final Examples.Stack<Integer> stack = new Examples.AsyncStack<>(2);
+
+        @Actor
+        public void actor1(II_Result r) {
+            r.r1 = pushPop(stack, 1);
+        }
+
+        @Actor
+        public void actor2(II_Result r) {
+            r.r2 = pushPop(stack, 2);
+        }
+    }
+
+    private static int pushPop(Examples.Stack<Integer> stack, int value) {
+        try {
+            stack.push(value);
+            return stack.pop();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
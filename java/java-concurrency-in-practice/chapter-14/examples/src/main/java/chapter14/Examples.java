@@ -0,0 +1,1295 @@
+package chapter14;
+
+import bench.FlatCombiner;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.AbstractQueuedSynchronizer;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+public class Examples {
+    public interface Stack<T> {
+        T pop() throws InterruptedException;
+        void push(T value) throws InterruptedException;
+
+        // Pushes all values, blocking whenever the stack is full.
+        // Values are added in batches of as many as fit, waking up waiting consumers once per batch.
+        void pushAll(Collection<? extends T> values) throws InterruptedException;
+
+        // Blocks until at least one element is available, then pops up to maxElements in one go.
+        // Returns the number of elements transferred to target.
+        int drainTo(Collection<? super T> target, int maxElements) throws InterruptedException;
+        int getBound();
+    }
+
+    public static class IntrinsicConditionQueue<T> implements Stack<T> {
+        private final List<T> elems = new ArrayList<>();
+        private final int bound;
+
+        public IntrinsicConditionQueue(int bound) {
+            this.bound = bound;
+        }
+
+        @Override
+        public synchronized T pop() throws InterruptedException {
+            while (isEmpty()) {
+                wait();
+            }
+
+            T r = elems.get(elems.size()-1);
+            elems.remove(elems.size()-1);
+            notifyAll();
+
+            return r;
+        }
+
+        @Override
+        public synchronized void push(T value) throws InterruptedException {
+            while (isFull()) {
+                wait();
+            }
+
+            elems.add(value);
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void pushAll(Collection<? extends T> values) throws InterruptedException {
+            Iterator<? extends T> it = values.iterator();
+            while (it.hasNext()) {
+                while (isFull()) {
+                    wait();
+                }
+
+                while (it.hasNext() && !isFull()) {
+                    elems.add(it.next());
+                }
+                notifyAll();
+            }
+        }
+
+        @Override
+        public synchronized int drainTo(Collection<? super T> target, int maxElements) throws InterruptedException {
+            if (maxElements <= 0)
+                return 0;
+
+            while (isEmpty()) {
+                wait();
+            }
+
+            int cnt = Math.min(maxElements, elems.size());
+            for (int i = 0; i < cnt; i++) {
+                target.add(elems.remove(elems.size() - 1));
+            }
+            notifyAll();
+
+            return cnt;
+        }
+
+        @Override
+        public int getBound() {
+            return bound;
+        }
+
+
+        private boolean isEmpty() {
+            return elems.size() == 0;
+        }
+
+        private boolean isFull() {
+            return elems.size() == bound;
+        }
+    }
+
+    // Same as IntrinsicConditionQueue, but keeps track of how many pushers & poppers are waiting on the monitor.
+    // Instead of waking up everyone on every change, only threads which can make progress are notified.
+    // Passing targeted = false falls back to notifyAll() so that both modes can be compared via getStats().
+    public static class TargetedConditionQueue<T> implements Stack<T> {
+        private final List<T> elems = new ArrayList<>();
+        private final int bound;
+        private final boolean targeted;
+
+        // threads in the wait set, minus the ones which were already notified but haven't woken up yet
+        private int waitingPoppers;
+        private int waitingPushers;
+        private int notifiedPoppers;
+        private int notifiedPushers;
+        private final WaitStats stats = new WaitStats();
+
+        public TargetedConditionQueue(int bound) {
+            this(bound, true);
+        }
+
+        public TargetedConditionQueue(int bound, boolean targeted) {
+            this.bound = bound;
+            this.targeted = targeted;
+        }
+
+        @Override
+        public synchronized T pop() throws InterruptedException {
+            awaitElements();
+
+            T r = elems.remove(elems.size() - 1);
+            signalPushers(1);
+
+            return r;
+        }
+
+        @Override
+        public synchronized void push(T value) throws InterruptedException {
+            awaitSpace();
+
+            elems.add(value);
+            signalPoppers(1);
+        }
+
+        @Override
+        public synchronized void pushAll(Collection<? extends T> values) throws InterruptedException {
+            Iterator<? extends T> it = values.iterator();
+            while (it.hasNext()) {
+                awaitSpace();
+
+                int cnt = 0;
+                while (it.hasNext() && !isFull()) {
+                    elems.add(it.next());
+                    cnt++;
+                }
+                signalPoppers(cnt);
+            }
+        }
+
+        @Override
+        public synchronized int drainTo(Collection<? super T> target, int maxElements) throws InterruptedException {
+            if (maxElements <= 0)
+                return 0;
+
+            awaitElements();
+
+            int cnt = Math.min(maxElements, elems.size());
+            for (int i = 0; i < cnt; i++) {
+                target.add(elems.remove(elems.size() - 1));
+            }
+            signalPushers(cnt);
+
+            return cnt;
+        }
+
+        @Override
+        public int getBound() {
+            return bound;
+        }
+
+        public synchronized WaitStats getStats() {
+            return new WaitStats(stats);
+        }
+
+        private void awaitElements() throws InterruptedException {
+            while (isEmpty()) {
+                waitingPoppers++;
+                try {
+                    timedWait();
+                } finally {
+                    waitingPoppers--;
+                    if (notifiedPoppers > 0) {
+                        notifiedPoppers--;
+                    }
+                }
+
+                if (isEmpty()) {
+                    stats.spuriousWakeups++;
+                }
+            }
+        }
+
+        private void awaitSpace() throws InterruptedException {
+            while (isFull()) {
+                waitingPushers++;
+                try {
+                    timedWait();
+                } finally {
+                    waitingPushers--;
+                    if (notifiedPushers > 0) {
+                        notifiedPushers--;
+                    }
+                }
+
+                if (isFull()) {
+                    stats.spuriousWakeups++;
+                }
+            }
+        }
+
+        private void timedWait() throws InterruptedException {
+            long start = System.nanoTime();
+            try {
+                wait();
+            } finally {
+                stats.wakeups++;
+                stats.waitNanos += System.nanoTime() - start;
+            }
+        }
+
+        private void signalPoppers(int cnt) {
+            if (!targeted) {
+                signalAll();
+                return;
+            }
+
+            int notifiable = waitingPoppers - notifiedPoppers;
+            if (notifiable == 0)
+                return;
+
+            // notify() could pick a waiting pusher instead, so it's only safe when there are none in the wait set
+            if (waitingPushers - notifiedPushers > 0) {
+                signalAll();
+            } else {
+                notifiedPoppers += notifyUpTo(Math.min(cnt, notifiable));
+            }
+        }
+
+        private void signalPushers(int cnt) {
+            if (!targeted) {
+                signalAll();
+                return;
+            }
+
+            int notifiable = waitingPushers - notifiedPushers;
+            if (notifiable == 0)
+                return;
+
+            if (waitingPoppers - notifiedPoppers > 0) {
+                signalAll();
+            } else {
+                notifiedPushers += notifyUpTo(Math.min(cnt, notifiable));
+            }
+        }
+
+        private int notifyUpTo(int cnt) {
+            for (int i = 0; i < cnt; i++) {
+                notify();
+            }
+            stats.notifications += cnt;
+
+            return cnt;
+        }
+
+        private void signalAll() {
+            notifyAll();
+            notifiedPoppers = waitingPoppers;
+            notifiedPushers = waitingPushers;
+            stats.notifications++;
+        }
+
+        private boolean isEmpty() {
+            return elems.size() == 0;
+        }
+
+        private boolean isFull() {
+            return elems.size() == bound;
+        }
+    }
+
+    public static class WaitStats {
+        private long wakeups;
+        private long spuriousWakeups;
+        private long waitNanos;
+        private long notifications;
+
+        WaitStats() {
+        }
+
+        WaitStats(WaitStats other) {
+            wakeups = other.wakeups;
+            spuriousWakeups = other.spuriousWakeups;
+            waitNanos = other.waitNanos;
+            notifications = other.notifications;
+        }
+
+        public long getWakeups() {
+            return wakeups;
+        }
+
+        public long getSpuriousWakeups() {
+            return spuriousWakeups;
+        }
+
+        public long getWaitNanos() {
+            return waitNanos;
+        }
+
+        public long getNotifications() {
+            return notifications;
+        }
+    }
+
+    public static class ExplicitConditionQueue<T> implements Stack<T> {
+        private final Lock lock = new ReentrantLock();
+        private final Condition hasElementsCondition = lock.newCondition();
+        private final Condition notFullCondition = lock.newCondition();
+
+        private final List<T> elems = new ArrayList<>();
+        private final int bound;
+
+        public ExplicitConditionQueue(int bound) {
+            this.bound = bound;
+        }
+
+        @Override
+        public T pop() throws InterruptedException {
+            lock.lock();
+            try {
+                while (isEmpty()) {
+                    hasElementsCondition.await();
+                }
+
+                T r = elems.get(elems.size() - 1);
+                elems.remove(elems.size() - 1);
+                notFullCondition.signal();
+
+                return r;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void push(T value) throws InterruptedException {
+            lock.lock();
+            try {
+                while (isFull()) {
+                    notFullCondition.await();
+                }
+
+                elems.add(value);
+                hasElementsCondition.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void pushAll(Collection<? extends T> values) throws InterruptedException {
+            lock.lock();
+            try {
+                Iterator<? extends T> it = values.iterator();
+                while (it.hasNext()) {
+                    while (isFull()) {
+                        notFullCondition.await();
+                    }
+
+                    while (it.hasNext() && !isFull()) {
+                        elems.add(it.next());
+                    }
+                    hasElementsCondition.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public int drainTo(Collection<? super T> target, int maxElements) throws InterruptedException {
+            if (maxElements <= 0)
+                return 0;
+
+            lock.lock();
+            try {
+                while (isEmpty()) {
+                    hasElementsCondition.await();
+                }
+
+                int cnt = Math.min(maxElements, elems.size());
+                for (int i = 0; i < cnt; i++) {
+                    target.add(elems.remove(elems.size() - 1));
+                }
+                notFullCondition.signalAll();
+
+                return cnt;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public int getBound() {
+            return bound;
+        }
+
+
+        private boolean isEmpty() {
+            return elems.size() == 0;
+        }
+
+        private boolean isFull() {
+            return elems.size() == bound;
+        }
+    }
+
+    public static class AQS<T> implements Stack<T> {
+        private final List<T> elems = new ArrayList<>();
+        private final int bound;
+        private final Sync hasElementsSync;
+        private final Sync notFullSync;
+
+        public AQS(int bound) {
+            this.bound = bound;
+            hasElementsSync = new Sync();
+            notFullSync = new Sync(bound);
+        }
+
+        @Override
+        public T pop() throws InterruptedException {
+            hasElementsSync.acquireSharedInterruptibly(1);
+            synchronized (this) {
+                T r = elems.get(elems.size() - 1);
+                elems.remove(elems.size() - 1);
+                notFullSync.releaseShared(1);
+
+                return r;
+            }
+        }
+
+        @Override
+        public void push(T value) throws InterruptedException {
+            notFullSync.acquireSharedInterruptibly(1);
+            synchronized (this) {
+                elems.add(value);
+                hasElementsSync.releaseShared(1);
+            }
+        }
+
+        @Override
+        public void pushAll(Collection<? extends T> values) throws InterruptedException {
+            Iterator<? extends T> it = values.iterator();
+            int remaining = values.size();
+            while (remaining > 0) {
+                // block for one free slot, then grab as many of the other free slots as we need
+                notFullSync.acquireSharedInterruptibly(1);
+                int cnt = 1 + notFullSync.tryAcquireUpTo(remaining - 1);
+                synchronized (this) {
+                    for (int i = 0; i < cnt; i++) {
+                        elems.add(it.next());
+                    }
+                    hasElementsSync.releaseShared(cnt);
+                }
+
+                remaining -= cnt;
+            }
+        }
+
+        @Override
+        public int drainTo(Collection<? super T> target, int maxElements) throws InterruptedException {
+            if (maxElements <= 0)
+                return 0;
+
+            hasElementsSync.acquireSharedInterruptibly(1);
+            int cnt = 1 + hasElementsSync.tryAcquireUpTo(maxElements - 1);
+            synchronized (this) {
+                for (int i = 0; i < cnt; i++) {
+                    target.add(elems.remove(elems.size() - 1));
+                }
+                notFullSync.releaseShared(cnt);
+            }
+
+            return cnt;
+        }
+
+        @Override
+        public int getBound() {
+            return bound;
+        }
+    }
+
+    // Same permit accounting as AQS, but the elements are stored in a ring of slots claimed via CAS on a ticket index,
+    // so there's no monitor in the way once a permit is acquired.
+    // Claiming a slot by index only works in one direction, hence elements are handed out in FIFO rather than LIFO order.
+    // Null elements are rejected, as an empty slot is null - a popper would wait for a null element forever.
+    public static class CasSlotAQS<T> implements Stack<T> {
+        private final AtomicReferenceArray<T> slots;
+        private final AtomicLong pushIndex = new AtomicLong();
+        private final AtomicLong popIndex = new AtomicLong();
+        private final int bound;
+        private final Sync hasElementsSync;
+        private final Sync notFullSync;
+
+        public CasSlotAQS(int bound) {
+            this(bound, false);
+        }
+
+        public CasSlotAQS(int bound, boolean fair) {
+            this.bound = bound;
+            slots = new AtomicReferenceArray<>(bound);
+            hasElementsSync = new Sync(0, fair);
+            notFullSync = new Sync(bound, fair);
+        }
+
+        @Override
+        public T pop() throws InterruptedException {
+            hasElementsSync.acquireSharedInterruptibly(1);
+            return takeReserved();
+        }
+
+        public T tryPop(long timeout, TimeUnit unit) throws InterruptedException {
+            if (!hasElementsSync.tryAcquireSharedNanos(1, unit.toNanos(timeout)))
+                return null;
+
+            return takeReserved();
+        }
+
+        @Override
+        public void push(T value) throws InterruptedException {
+            Objects.requireNonNull(value);
+            notFullSync.acquireSharedInterruptibly(1);
+            putReserved(value);
+        }
+
+        public boolean tryPush(T value, long timeout, TimeUnit unit) throws InterruptedException {
+            Objects.requireNonNull(value);
+            if (!notFullSync.tryAcquireSharedNanos(1, unit.toNanos(timeout)))
+                return false;
+
+            putReserved(value);
+            return true;
+        }
+
+        @Override
+        public void pushAll(Collection<? extends T> values) throws InterruptedException {
+            // checked upfront, so that a null doesn't leave the batch half pushed
+            for (T value : values) {
+                Objects.requireNonNull(value);
+            }
+
+            Iterator<? extends T> it = values.iterator();
+            int remaining = values.size();
+            while (remaining > 0) {
+                notFullSync.acquireSharedInterruptibly(1);
+                int cnt = 1 + notFullSync.tryAcquireUpTo(remaining - 1);
+                long first = pushIndex.getAndAdd(cnt);
+                for (int i = 0; i < cnt; i++) {
+                    store(first + i, it.next());
+                }
+                hasElementsSync.releaseShared(cnt);
+
+                remaining -= cnt;
+            }
+        }
+
+        @Override
+        public int drainTo(Collection<? super T> target, int maxElements) throws InterruptedException {
+            if (maxElements <= 0)
+                return 0;
+
+            hasElementsSync.acquireSharedInterruptibly(1);
+            int cnt = 1 + hasElementsSync.tryAcquireUpTo(maxElements - 1);
+            long first = popIndex.getAndAdd(cnt);
+            for (int i = 0; i < cnt; i++) {
+                target.add(load(first + i));
+            }
+            notFullSync.releaseShared(cnt);
+
+            return cnt;
+        }
+
+        @Override
+        public int getBound() {
+            return bound;
+        }
+
+        private void putReserved(T value) {
+            store(pushIndex.getAndIncrement(), value);
+            hasElementsSync.releaseShared(1);
+        }
+
+        private T takeReserved() {
+            T r = load(popIndex.getAndIncrement());
+            notFullSync.releaseShared(1);
+
+            return r;
+        }
+
+        // The permit guarantees the slot will be free, but the popper of the previous lap might not have cleared it yet
+        private void store(long ticket, T value) {
+            int idx = (int) (ticket % bound);
+            while (!slots.compareAndSet(idx, null, value)) {
+                Thread.onSpinWait();
+            }
+        }
+
+        // The permit guarantees an element is coming, but its pusher might not have stored it yet
+        private T load(long ticket) {
+            int idx = (int) (ticket % bound);
+            while (true) {
+                T r = slots.get(idx);
+                if (r != null && slots.compareAndSet(idx, r, null))
+                    return r;
+
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    // The ExplicitConditionQueue's operations run through a flat combiner instead of every thread taking the lock.
+    // Operations on a combiner mustn't block, so a full (or empty) stack is reported back to the caller, which
+    // backs off & retries - parking for longer & longer, up to a millisecond. Null elements aren't supported,
+    // as null is what an unsuccessful pop returns.
+    public static class FlatCombiningStack<T> implements Stack<T> {
+        private static final long MAX_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+        private final FlatCombiner<List<T>> combiner = new FlatCombiner<>(new ArrayList<>());
+        private final int bound;
+
+        public FlatCombiningStack(int bound) {
+            this.bound = bound;
+        }
+
+        @Override
+        public T pop() throws InterruptedException {
+            long backoffNanos = 1000;
+            while (true) {
+                T r = combiner.execute(elems -> elems.isEmpty() ? null : elems.remove(elems.size() - 1));
+                if (r != null)
+                    return r;
+
+                backoffNanos = backOff(backoffNanos);
+            }
+        }
+
+        @Override
+        public void push(T value) throws InterruptedException {
+            long backoffNanos = 1000;
+            while (!combiner.execute(elems -> elems.size() < bound && elems.add(value))) {
+                backoffNanos = backOff(backoffNanos);
+            }
+        }
+
+        @Override
+        public void pushAll(Collection<? extends T> values) throws InterruptedException {
+            Iterator<? extends T> it = values.iterator();
+            long backoffNanos = 1000;
+            while (it.hasNext()) {
+                int added = combiner.execute(elems -> {
+                    int cnt = 0;
+                    while (it.hasNext() && elems.size() < bound) {
+                        elems.add(it.next());
+                        cnt++;
+                    }
+
+                    return cnt;
+                });
+
+                backoffNanos = added > 0 ? 1000 : backOff(backoffNanos);
+            }
+        }
+
+        @Override
+        public int drainTo(Collection<? super T> target, int maxElements) throws InterruptedException {
+            if (maxElements <= 0)
+                return 0;
+
+            long backoffNanos = 1000;
+            while (true) {
+                int cnt = combiner.execute(elems -> {
+                    int n = Math.min(maxElements, elems.size());
+                    for (int i = 0; i < n; i++) {
+                        target.add(elems.remove(elems.size() - 1));
+                    }
+
+                    return n;
+                });
+                if (cnt > 0)
+                    return cnt;
+
+                backoffNanos = backOff(backoffNanos);
+            }
+        }
+
+        @Override
+        public int getBound() {
+            return bound;
+        }
+
+        public FlatCombiner<List<T>> getCombiner() {
+            return combiner;
+        }
+
+        private static long backOff(long backoffNanos) throws InterruptedException {
+            LockSupport.parkNanos(backoffNanos);
+            if (Thread.interrupted())
+                throw new InterruptedException();
+
+            return Math.min(backoffNanos * 2, MAX_BACKOFF_NANOS);
+        }
+    }
+
+    // Non-blocking variant - popAsync() & pushAsync() return a CompletionStage instead of parking the caller.
+    // Operations which can't complete right away are kept as waiter records & completed by the matching operation
+    // (a push completes a waiting pop with its value directly), so pending operations cost memory but no threads.
+    // The blocking Stack methods simply wait for the stages.
+    //
+    // Waiters may be cancelled or time out (e.g. via orTimeout). Whoever claims a waiter first - the matching
+    // operation or the cancellation - wins, so a cancelled pop never swallows a value & a cancelled push never
+    // sneaks its value in.
+    public static class AsyncStack<T> implements Stack<T> {
+        private final Lock lock = new ReentrantLock();
+        // guarded by lock
+        private final List<T> elems = new ArrayList<>();
+        private final ArrayDeque<Waiter<T>> poppers = new ArrayDeque<>();
+        private final ArrayDeque<PendingPush<T>> pushers = new ArrayDeque<>();
+        private final int bound;
+
+        public AsyncStack(int bound) {
+            this.bound = bound;
+        }
+
+        public CompletionStage<T> popAsync() {
+            T value = null;
+            PendingPush<T> admitted = null;
+            Waiter<T> waiter = null;
+            lock.lock();
+            try {
+                if (!elems.isEmpty()) {
+                    value = elems.remove(elems.size() - 1);
+                    // room for a waiting push now
+                    admitted = claimPusher();
+                    if (admitted != null)
+                        elems.add(admitted.value);
+                } else {
+                    waiter = new Waiter<>();
+                    poppers.add(waiter);
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            // completions run the callers' continuations, so they happen outside of the lock
+            if (admitted != null)
+                admitted.waiter.fulfill(null);
+
+            return waiter != null ? waiter : CompletableFuture.completedFuture(value);
+        }
+
+        public CompletionStage<Void> pushAsync(T value) {
+            Waiter<T> popper;
+            Waiter<Void> waiter = null;
+            lock.lock();
+            try {
+                popper = claimPopper();
+                if (popper == null) {
+                    if (elems.size() < bound) {
+                        elems.add(value);
+                    } else {
+                        waiter = new Waiter<>();
+                        pushers.add(new PendingPush<>(value, waiter));
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            // a waiting pop gets the value handed off directly, it never goes through elems
+            if (popper != null)
+                popper.fulfill(value);
+
+            return waiter != null ? waiter : CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public T pop() throws InterruptedException {
+            return await(popAsync().toCompletableFuture());
+        }
+
+        @Override
+        public void push(T value) throws InterruptedException {
+            await(pushAsync(value).toCompletableFuture());
+        }
+
+        @Override
+        public void pushAll(Collection<? extends T> values) throws InterruptedException {
+            for (T value : values) {
+                push(value);
+            }
+        }
+
+        @Override
+        public int drainTo(Collection<? super T> target, int maxElements) throws InterruptedException {
+            if (maxElements <= 0)
+                return 0;
+
+            target.add(pop());
+            int cnt = 1;
+            List<PendingPush<T>> admitted = new ArrayList<>();
+            lock.lock();
+            try {
+                while (cnt < maxElements && !elems.isEmpty()) {
+                    target.add(elems.remove(elems.size() - 1));
+                    cnt++;
+
+                    PendingPush<T> pusher = claimPusher();
+                    if (pusher != null) {
+                        elems.add(pusher.value);
+                        admitted.add(pusher);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            for (PendingPush<T> pusher : admitted) {
+                pusher.waiter.fulfill(null);
+            }
+            return cnt;
+        }
+
+        @Override
+        public int getBound() {
+            return bound;
+        }
+
+        public int getWaitingPoppersCnt() {
+            lock.lock();
+            try {
+                return poppers.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // cancelled & timed out waiters are skipped (and dropped) here
+        private Waiter<T> claimPopper() {
+            Waiter<T> popper;
+            while ((popper = poppers.poll()) != null) {
+                if (popper.claim())
+                    return popper;
+            }
+
+            return null;
+        }
+
+        private PendingPush<T> claimPusher() {
+            PendingPush<T> pusher;
+            while ((pusher = pushers.poll()) != null) {
+                if (pusher.waiter.claim())
+                    return pusher;
+            }
+
+            return null;
+        }
+
+        // If interrupted after the operation went through, the result is kept & the interrupt re-asserted instead
+        private static <V> V await(CompletableFuture<V> f) throws InterruptedException {
+            try {
+                return f.get();
+            } catch (InterruptedException e) {
+                if (f.cancel(false))
+                    throw e;
+
+                Thread.currentThread().interrupt();
+                return f.join();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        private static class PendingPush<T> {
+            private final T value;
+            private final Waiter<Void> waiter;
+
+            PendingPush(T value, Waiter<Void> waiter) {
+                this.value = value;
+                this.waiter = waiter;
+            }
+        }
+
+        private static class Waiter<V> extends CompletableFuture<V> {
+            private final AtomicBoolean claimed = new AtomicBoolean();
+
+            boolean claim() {
+                return claimed.compareAndSet(false, true);
+            }
+
+            // completes a waiter claimed by the matching operation
+            void fulfill(V value) {
+                super.complete(value);
+            }
+
+            @Override
+            public boolean complete(V value) {
+                return claim() && super.complete(value);
+            }
+
+            @Override
+            public boolean completeExceptionally(Throwable ex) {
+                return claim() && super.completeExceptionally(ex);
+            }
+
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                return claim() && super.cancel(mayInterruptIfRunning);
+            }
+        }
+    }
+
+    // Disruptor-style ring for handing events between stages - not a Stack, as events aren't pushed but claimed in place.
+    // All events are allocated upfront. Producers claim a sequence, fill in the event at that slot & publish it.
+    // Consumers claim batches of sequences & process the events in place, so nothing is allocated after construction.
+    //
+    // Every slot has its own sequence number which tells whose turn it is:
+    // seq == s -> free for the producer of sequence s
+    // seq == s+1 -> published, ready for the consumer of sequence s
+    // seq == s+size -> consumed, free for the producer of the next lap
+    public static class SequencedRing<E> {
+        private final Object[] events;
+        private final AtomicLongArray sequences;
+        private final int mask;
+        private final WaitStrategy waitStrategy;
+
+        private final AtomicLong claimCursor = new AtomicLong();
+        private final AtomicLong consumeCursor = new AtomicLong();
+        private final AtomicBoolean halted = new AtomicBoolean();
+
+        public SequencedRing(int size, Supplier<E> eventFactory, WaitStrategy waitStrategy) {
+            // with a single slot, "published" (s+1) is the same as "free for the next lap" (s+size)
+            if (size < 2 || Integer.bitCount(size) != 1)
+                throw new IllegalArgumentException("size must be a power of 2, at least 2: " + size);
+
+            this.events = new Object[size];
+            this.sequences = new AtomicLongArray(size);
+            this.mask = size - 1;
+            this.waitStrategy = waitStrategy;
+            for (int i = 0; i < size; i++) {
+                events[i] = eventFactory.get();
+                sequences.set(i, i);
+            }
+        }
+
+        // Claims the next sequence, waiting for its slot to be consumed if the ring has wrapped around
+        public long next() {
+            long seq = claimCursor.getAndIncrement();
+            if (!waitStrategy.waitFor(sequences, (int) seq & mask, seq, halted))
+                throw new IllegalStateException("ring was halted");
+
+            return seq;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E get(long seq) {
+            return (E) events[(int) seq & mask];
+        }
+
+        public void publish(long seq) {
+            sequences.set((int) seq & mask, seq + 1);
+            waitStrategy.signalAll();
+        }
+
+        // Claims all events which producers have claimed so far, up to maxBatch, and hands them to the handler in order.
+        // Blocks if nothing has been claimed yet. Returns -1 if the ring got halted in the meantime.
+        public int consume(EventHandler<? super E> handler, int maxBatch) {
+            long first;
+            int cnt;
+            while (true) {
+                first = consumeCursor.get();
+                long claimed = claimCursor.get() - first;
+                cnt = (int) Math.max(1, Math.min(maxBatch, claimed));
+                if (consumeCursor.compareAndSet(first, first + cnt))
+                    break;
+            }
+
+            for (int i = 0; i < cnt; i++) {
+                long seq = first + i;
+                int idx = (int) seq & mask;
+                if (!waitStrategy.waitFor(sequences, idx, seq + 1, halted))
+                    return -1;
+
+                handler.onEvent(get(seq), seq, i == cnt - 1);
+                sequences.set(idx, seq + events.length);
+            }
+            waitStrategy.signalAll();
+
+            return cnt;
+        }
+
+        // Wakes up all waiting producers & consumers, which give up
+        public void halt() {
+            halted.set(true);
+            waitStrategy.signalAll();
+        }
+    }
+
+    public interface EventHandler<E> {
+        void onEvent(E event, long sequence, boolean endOfBatch);
+    }
+
+    public interface WaitStrategy {
+        // Waits until sequences[idx] >= expected. Returns false if halted before that.
+        boolean waitFor(AtomicLongArray sequences, int idx, long expected, AtomicBoolean halted);
+
+        // Called whenever a slot changes state
+        void signalAll();
+    }
+
+    // Lowest latency, but burns a core per waiting thread
+    public static class BusySpinWaitStrategy implements WaitStrategy {
+        @Override
+        public boolean waitFor(AtomicLongArray sequences, int idx, long expected, AtomicBoolean halted) {
+            while (sequences.get(idx) < expected) {
+                if (halted.get())
+                    return false;
+
+                Thread.onSpinWait();
+            }
+
+            return true;
+        }
+
+        @Override
+        public void signalAll() {
+        }
+    }
+
+    // Spins for a while, then gives up the CPU to other threads between checks
+    public static class YieldingWaitStrategy implements WaitStrategy {
+        private static final int SPIN_TRIES = 100;
+
+        @Override
+        public boolean waitFor(AtomicLongArray sequences, int idx, long expected, AtomicBoolean halted) {
+            int tries = 0;
+            while (sequences.get(idx) < expected) {
+                if (halted.get())
+                    return false;
+
+                if (tries++ < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+            }
+
+            return true;
+        }
+
+        @Override
+        public void signalAll() {
+        }
+    }
+
+    // Parks waiting threads on a condition - cheapest on CPU, but every state change has to take the lock to signal
+    public static class BlockingWaitStrategy implements WaitStrategy {
+        private final Lock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+
+        @Override
+        public boolean waitFor(AtomicLongArray sequences, int idx, long expected, AtomicBoolean halted) {
+            if (sequences.get(idx) >= expected)
+                return true;
+
+            lock.lock();
+            try {
+                while (sequences.get(idx) < expected) {
+                    if (halted.get())
+                        return false;
+
+                    changed.awaitUninterruptibly();
+                }
+
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void signalAll() {
+            lock.lock();
+            try {
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Admission control in front of an expensive dependency - at most maxConcurrent calls run at once, & at most
+    // maxQueued callers wait for a permit. Everyone else is rejected right away (load shedding), so that under
+    // overload callers fail fast instead of piling up, & the latency of admitted calls stays bounded.
+    public static class Bulkhead {
+        private final Sync sync;
+        private final int maxConcurrent;
+        private final int maxQueued;
+
+        private final AtomicInteger queuedCnt = new AtomicInteger();
+        private final LongAdder admittedCnt = new LongAdder();
+        private final LongAdder rejectedCnt = new LongAdder();
+        private final LongAdder timedOutCnt = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+        public Bulkhead(int maxConcurrent, int maxQueued, boolean fair) {
+            this.sync = new Sync(maxConcurrent, fair);
+            this.maxConcurrent = maxConcurrent;
+            this.maxQueued = maxQueued;
+        }
+
+        // Every successful acquire must be followed by a release()
+        public boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+            if (sync.tryAcquireShared(1) >= 0) {
+                admittedCnt.increment();
+                return true;
+            }
+
+            if (queuedCnt.incrementAndGet() > maxQueued) {
+                queuedCnt.decrementAndGet();
+                rejectedCnt.increment();
+                return false;
+            }
+
+            long start = System.nanoTime();
+            try {
+                if (!sync.tryAcquireSharedNanos(1, unit.toNanos(timeout))) {
+                    timedOutCnt.increment();
+                    return false;
+                }
+
+                admittedCnt.increment();
+                return true;
+            } finally {
+                queuedCnt.decrementAndGet();
+                long waited = System.nanoTime() - start;
+                waitNanos.add(waited);
+                maxWaitNanos.accumulate(waited);
+            }
+        }
+
+        public void release() {
+            sync.releaseShared(1);
+        }
+
+        // Runs the task if it's admitted in time, throws RejectedExecutionException otherwise
+        public <T> T call(Callable<T> task, long timeout, TimeUnit unit) throws Exception {
+            if (!tryAcquire(timeout, unit))
+                throw new RejectedExecutionException("bulkhead full");
+
+            try {
+                return task.call();
+            } finally {
+                release();
+            }
+        }
+
+        public int getInFlightCnt() {
+            return maxConcurrent - sync.getPermits();
+        }
+
+        public int getQueuedCnt() {
+            return queuedCnt.get();
+        }
+
+        public long getAdmittedCnt() {
+            return admittedCnt.sum();
+        }
+
+        // shed because the queue was full
+        public long getRejectedCnt() {
+            return rejectedCnt.sum();
+        }
+
+        // queued, but no permit became available in time
+        public long getTimedOutCnt() {
+            return timedOutCnt.sum();
+        }
+
+        // summed over all callers which had to queue
+        public long getWaitNanos() {
+            return waitNanos.sum();
+        }
+
+        public long getMaxWaitNanos() {
+            return maxWaitNanos.get();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("in flight = %d, queued = %d, admitted = %d, rejected = %d, timed out = %d, " +
+                            "max wait = %dus", getInFlightCnt(), getQueuedCnt(), getAdmittedCnt(), getRejectedCnt(),
+                    getTimedOutCnt(), getMaxWaitNanos() / 1000);
+        }
+    }
+
+    // Counting synchronizer shared by the AQS-based stacks - the state is the number of available permits
+    private static class Sync extends AbstractQueuedSynchronizer {
+        private final boolean fair;
+
+        protected Sync() {
+            this(0);
+        }
+
+        protected Sync(int initialState) {
+            this(initialState, false);
+        }
+
+        protected Sync(int initialState, boolean fair) {
+            this.fair = fair;
+            setState(initialState);
+        }
+
+        protected int tryAcquireShared(int permits) {
+            while (true) {
+                // in fair mode, don't barge in front of threads which are already waiting
+                if (fair && hasQueuedPredecessors())
+                    return -1;
+
+                int state = getState();
+                int target = state-permits;
+                if (target < 0 || compareAndSetState(state, target)) {
+                    return target;
+                }
+            }
+        }
+
+        protected boolean tryReleaseShared(int permits) {
+            while (true) {
+                int state = getState();
+                if (compareAndSetState(state, state+permits))
+                    return true;
+            }
+        }
+
+        int getPermits() {
+            return getState();
+        }
+
+        // Non-blocking - takes as many of the available permits as possible, up to max
+        int tryAcquireUpTo(int max) {
+            while (true) {
+                if (fair && hasQueuedPredecessors())
+                    return 0;
+
+                int state = getState();
+                int cnt = Math.min(state, max);
+                if (cnt <= 0 || compareAndSetState(state, state-cnt)) {
+                    return Math.max(cnt, 0);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,511 @@
+package chapter14;
+
+import bench.FlatCombiner;
+import bench.LoadDriver;
+import bench.ResourceMeter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+public class Main extends Thread {
+    private static boolean isStopped = false;
+
+    public static void main(String[] args) throws InterruptedException {
+        testQueues(Arrays.asList(
+                () -> new Examples.IntrinsicConditionQueue<>(10),
+                () -> new Examples.ExplicitConditionQueue<>(10),
+                () -> new Examples.AQS<>(10),
+                () -> new Examples.CasSlotAQS<>(10),
+                () -> new Examples.TargetedConditionQueue<>(10),
+                () -> new Examples.FlatCombiningStack<>(10),
+                () -> new Examples.AsyncStack<>(10)));
+
+        testHandOff(() -> new Examples.IntrinsicConditionQueue<>(64), 1_000_000);
+        testHandOff(() -> new Examples.ExplicitConditionQueue<>(64), 1_000_000);
+        testHandOff(() -> new Examples.AQS<>(64), 1_000_000);
+        testHandOff(() -> new Examples.CasSlotAQS<>(64), 1_000_000);
+        testHandOff(() -> new Examples.CasSlotAQS<>(64, true), 1_000_000);
+        testHandOff(() -> new Examples.FlatCombiningStack<>(64), 1_000_000);
+        testHandOff(() -> new Examples.AsyncStack<>(64), 1_000_000);
+        testTimeouts(new Examples.CasSlotAQS<>(1));
+
+        // With a small bound, the producer often waits alongside the consumers.
+        // The wait set is mixed then, so targeted signalling has to fall back to notifyAll()
+        testWakeups(10, false, 100, 200_000);
+        testWakeups(10, true, 100, 200_000);
+        testWakeups(1000, false, 100, 200_000);
+        testWakeups(1000, true, 100, 200_000);
+
+        testRing("busy spin", Examples.BusySpinWaitStrategy::new, 2, 2, 1_000_000);
+        testRing("yielding", Examples.YieldingWaitStrategy::new, 2, 2, 1_000_000);
+        testRing("blocking", Examples.BlockingWaitStrategy::new, 2, 2, 1_000_000);
+
+        testAsyncWaiters(100_000, 4);
+
+        // 64 callers against a dependency which handles 8 calls at once - unbounded queueing vs. load shedding
+        testBulkhead("unbounded queue", new Examples.Bulkhead(8, Integer.MAX_VALUE, false), 1, TimeUnit.MINUTES);
+        testBulkhead("shedding, unfair", new Examples.Bulkhead(8, 16, false), 20, TimeUnit.MILLISECONDS);
+        testBulkhead("shedding, fair", new Examples.Bulkhead(8, 16, true), 20, TimeUnit.MILLISECONDS);
+
+        int maxThreadsCnt = Runtime.getRuntime().availableProcessors() * 2;
+        for (int threadsCnt = 1; threadsCnt <= maxThreadsCnt; threadsCnt *= 2) {
+            testCombining(threadsCnt);
+        }
+
+        testVirtualThreads(Arrays.asList(
+                () -> new Examples.IntrinsicConditionQueue<>(10),
+                () -> new Examples.ExplicitConditionQueue<>(10),
+                () -> new Examples.AQS<>(10),
+                () -> new Examples.CasSlotAQS<>(10),
+                () -> new Examples.TargetedConditionQueue<>(10)));
+    }
+
+    // Parks waitersCnt pops on an empty AsyncStack - none of them holds a thread - then completes them all
+    // with pushes from a handful of producer threads.
+    public static void testAsyncWaiters(int waitersCnt, int producersCnt) throws InterruptedException {
+        System.out.printf("\nMeasuring %d waiting consumers on an AsyncStack with %d producer threads...\n",
+                waitersCnt, producersCnt);
+        Examples.AsyncStack<Integer> stack = new Examples.AsyncStack<>(16);
+        CountDownLatch consumed = new CountDownLatch(waitersCnt);
+        int threadsBefore = Thread.activeCount();
+        long heapBefore = usedHeap();
+
+        for (int i = 0; i < waitersCnt; i++) {
+            stack.popAsync().thenAccept(value -> consumed.countDown());
+        }
+        long heapPerWaiter = (usedHeap() - heapBefore) / waitersCnt;
+        System.out.printf("\t%d pops waiting, ~%d bytes each, %d extra threads\n",
+                stack.getWaitingPoppersCnt(), heapPerWaiter, Thread.activeCount() - threadsBefore);
+
+        ExecutorService producers = Executors.newFixedThreadPool(producersCnt);
+        ResourceMeter meter = ResourceMeter.start();
+        long start = System.nanoTime();
+        for (int i = 0; i < producersCnt; i++) {
+            producers.execute(() -> {
+                for (int j = 0; j < waitersCnt / producersCnt; j++) {
+                    stack.pushAsync(j);
+                }
+            });
+        }
+
+        boolean completed = consumed.await(30, TimeUnit.SECONDS);
+        long elapsed = (System.nanoTime() - start) / 1000000; // milliseconds
+        meter.stop();
+        producers.shutdown();
+        System.out.printf("\t%s in %dms, %s\n", completed ? "all pops completed" : "pops DID NOT complete", elapsed,
+                meter.perOp(waitersCnt));
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // Each call holds the dependency for 2ms. Rejected calls return right away - the latency percentiles cover them
+    // as well, so the admitted calls' latency is best judged by the max wait.
+    public static void testBulkhead(String name, Examples.Bulkhead bulkhead, long timeout, TimeUnit unit) {
+        System.out.println("\nMeasuring bulkhead (" + name + ") with 64 callers...");
+        LoadDriver.Result result = new LoadDriver().threads(64).run(5000, () -> {
+            try {
+                bulkhead.call(() -> {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(2));
+                    return null;
+                }, timeout, unit);
+            } catch (RejectedExecutionException ignored) {
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+
+        System.out.println("\t" + result);
+        System.out.println("\t" + bulkhead);
+    }
+
+    // Every operation is a push followed by a pop. The stack never fills up or runs empty, so nobody waits & what's
+    // measured is how well the lock (or the combiner) copes with many threads. Chunked, so that the threads contend
+    // on the stack rather than on the executor's queue.
+    public static void testCombining(int threadsCnt) {
+        System.out.println("\nMeasuring lock-based vs. flat-combining stack with " + threadsCnt + " threads...");
+        LoadDriver driver = new LoadDriver().threads(threadsCnt).chunked().warmUp(100000);
+
+        Examples.ExplicitConditionQueue<Integer> locking = new Examples.ExplicitConditionQueue<>(1024);
+        System.out.println("\tlock-based - " + driver.run(500000, pushPop(locking)));
+
+        Examples.FlatCombiningStack<Integer> combining = new Examples.FlatCombiningStack<>(1024);
+        LoadDriver.Result result = driver.run(500000, pushPop(combining));
+        FlatCombiner<?> combiner = combining.getCombiner();
+        System.out.printf("\tflat-combining - %s, %.1f ops combined per lock acquisition%n", result,
+                (double) combiner.getCombinedCnt() / combiner.getCombinesCnt());
+    }
+
+    private static Runnable pushPop(Examples.Stack<Integer> stack) {
+        return () -> {
+            try {
+                stack.push(1);
+                stack.pop();
+            } catch (InterruptedException e) {
+                currentThread().interrupt();
+            }
+        };
+    }
+
+    // Runs pushes & pops on virtual threads. Blocking inside a synchronized block (e.g. wait()) pins the carrier thread,
+    // which the pinning count reveals.
+    public static void testVirtualThreads(List<Supplier<Examples.Stack<Integer>>> queueSuppliers) {
+        System.out.println("\nTesting stacks on virtual threads...");
+        LoadDriver driver = new LoadDriver()
+                .executor(LoadDriver.ExecutorType.VIRTUAL_THREADS)
+                .timeout(30, TimeUnit.SECONDS);
+        for (Supplier<Examples.Stack<Integer>> queueSupplier : queueSuppliers) {
+            Examples.Stack<Integer> queue = queueSupplier.get();
+            // pops go first, so that they have to wait for the pushes
+            LoadDriver.Result result = driver.run(10_000, () -> {
+                try {
+                    queue.pop();
+                } catch (InterruptedException e) {
+                    currentThread().interrupt();
+                }
+            }, () -> {
+                try {
+                    queue.push(1);
+                } catch (InterruptedException e) {
+                    currentThread().interrupt();
+                }
+            });
+
+            System.out.println("\t" + queue.getClass().getName() + " - " + result);
+        }
+    }
+
+    private static class ValueEvent {
+        private long value;
+        private long publishedAt;
+    }
+
+    public static void testRing(String name, Supplier<Examples.WaitStrategy> waitStrategySupplier,
+                                int producersCnt, int consumersCnt, int eventsCnt) throws InterruptedException {
+        System.out.printf("\nMeasuring sequenced ring with %s wait strategy (%d producers, %d consumers)...\n",
+                name, producersCnt, consumersCnt);
+        Examples.SequencedRing<ValueEvent> ring =
+                new Examples.SequencedRing<>(1024, ValueEvent::new, waitStrategySupplier.get());
+
+        // latencies are recorded into preallocated arrays so that the measured loop doesn't allocate
+        long[][] latencies = new long[consumersCnt][eventsCnt];
+        int[] latenciesCnt = new int[consumersCnt];
+        LongAdder consumed = new LongAdder();
+        List<Thread> consumers = new ArrayList<>();
+        for (int i = 0; i < consumersCnt; i++) {
+            int consumerId = i;
+            Examples.EventHandler<ValueEvent> handler = (event, seq, endOfBatch) ->
+                    latencies[consumerId][latenciesCnt[consumerId]++] = System.nanoTime() - event.publishedAt;
+
+            consumers.add(new Thread(ResourceMeter.metered(() -> {
+                int cnt;
+                while ((cnt = ring.consume(handler, 64)) >= 0) {
+                    consumed.add(cnt);
+                }
+            })));
+        }
+
+        List<Thread> producers = new ArrayList<>();
+        for (int i = 0; i < producersCnt; i++) {
+            producers.add(new Thread(ResourceMeter.metered(() -> {
+                for (int j = 0; j < eventsCnt / producersCnt; j++) {
+                    long seq = ring.next();
+                    ValueEvent event = ring.get(seq);
+                    event.value = j;
+                    event.publishedAt = System.nanoTime();
+                    ring.publish(seq);
+                }
+            })));
+        }
+
+        ResourceMeter meter = ResourceMeter.start();
+        long start = System.nanoTime();
+        consumers.forEach(Thread::start);
+        producers.forEach(Thread::start);
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        long total = (long) eventsCnt / producersCnt * producersCnt;
+        while (consumed.sum() < total) {
+            Thread.yield();
+        }
+        long elapsed = System.nanoTime() - start;
+        meter.stop();
+
+        ring.halt();
+        for (Thread consumer : consumers) {
+            consumer.join();
+        }
+
+        long[] all = new long[(int) total];
+        int pos = 0;
+        for (int i = 0; i < consumersCnt; i++) {
+            System.arraycopy(latencies[i], 0, all, pos, latenciesCnt[i]);
+            pos += latenciesCnt[i];
+        }
+        Arrays.sort(all);
+
+        // consumers spin or yield while waiting, depending on the strategy - which shows up as CPU time per event
+        System.out.printf("\tthroughput = %.1fM events/s, %s\n", total * 1000.0 / elapsed, meter.perOp(total));
+        System.out.printf("\tlatency p50 = %dns, p99 = %dns, p99.9 = %dns\n",
+                all[all.length / 2], all[(int) (all.length * 0.99)], all[(int) (all.length * 0.999)]);
+    }
+
+    public static void testWakeups(int bound, boolean targeted, int consumersCnt, int itemsCnt)
+            throws InterruptedException {
+        System.out.printf("\nMeasuring wake-ups with %d consumers and bound %d (%s signalling)...\n",
+                consumersCnt, bound, targeted ? "targeted" : "notifyAll");
+        Examples.TargetedConditionQueue<Integer> queue = new Examples.TargetedConditionQueue<>(bound, targeted);
+        ExecutorService svc = Executors.newFixedThreadPool(consumersCnt + 1, ResourceMeter.threadFactory());
+        ResourceMeter meter = ResourceMeter.start();
+        for (int i = 0; i < consumersCnt; i++) {
+            svc.execute(() -> {
+                try {
+                    for (int j = 0; j < itemsCnt / consumersCnt; j++) {
+                        queue.pop();
+                    }
+                } catch (InterruptedException e) {
+                    currentThread().interrupt();
+                }
+            });
+        }
+        svc.execute(() -> {
+            try {
+                for (int j = 0; j < itemsCnt; j++) {
+                    queue.push(j);
+                }
+            } catch (InterruptedException e) {
+                currentThread().interrupt();
+            }
+        });
+
+        long start = System.nanoTime();
+        svc.shutdown();
+        svc.awaitTermination(5, TimeUnit.MINUTES);
+        long elapsed = (System.nanoTime() - start) / 1000000; // milliseconds
+        meter.stop();
+
+        Examples.WaitStats stats = queue.getStats();
+        double opsInMillions = 2.0 * itemsCnt / 1_000_000; // every item is pushed & popped once
+        System.out.printf("\ttotal time = %dms, %s\n", elapsed, meter.perOp(2L * itemsCnt));
+        System.out.printf("\twake-ups per 1M ops = %.0f (spurious = %.0f)\n",
+                stats.getWakeups() / opsInMillions, stats.getSpuriousWakeups() / opsInMillions);
+        System.out.printf("\tnotifications per 1M ops = %.0f\n", stats.getNotifications() / opsInMillions);
+        System.out.printf("\ttime spent waiting = %dms (summed over all threads)\n", stats.getWaitNanos() / 1000000);
+    }
+
+    // A timed-out operation parks until its deadline, so it should cost next to no CPU time
+    public static void testTimeouts(Examples.CasSlotAQS<Integer> queue) throws InterruptedException {
+        System.out.println("\nTesting timed operations...");
+        ResourceMeter meter = ResourceMeter.startCurrentThread();
+        Integer popped = queue.tryPop(100, TimeUnit.MILLISECONDS);
+        System.out.println("\ttryPop on empty queue returned " + popped + ", " + meter.stop().perOp(1));
+
+        meter = ResourceMeter.startCurrentThread();
+        boolean pushed = queue.tryPush(1, 100, TimeUnit.MILLISECONDS);
+        System.out.println("\ttryPush on empty queue returned " + pushed + ", " + meter.stop().perOp(1));
+
+        meter = ResourceMeter.startCurrentThread();
+        pushed = queue.tryPush(2, 100, TimeUnit.MILLISECONDS);
+        System.out.println("\ttryPush on full queue returned " + pushed + ", " + meter.stop().perOp(1));
+
+        meter = ResourceMeter.startCurrentThread();
+        popped = queue.tryPop(100, TimeUnit.MILLISECONDS);
+        System.out.println("\ttryPop on full queue returned " + popped + ", " + meter.stop().perOp(1));
+    }
+
+    public static void testHandOff(Supplier<Examples.Stack<Integer>> queueSupplier, int itemsCnt)
+            throws InterruptedException {
+        System.out.printf("\nMeasuring producer/consumer hand-off for %s...\n",
+                queueSupplier.get().getClass().getName());
+        for (int batchSize : new int[] {1, 16, 64}) {
+            Examples.Stack<Integer> queue = queueSupplier.get();
+            ResourceMeter meter = ResourceMeter.start();
+            long elapsed = measureHandOff(queue, itemsCnt, batchSize);
+            meter.stop();
+            System.out.printf("\tbatch size %2d - %d items handed off in %dms, %s\n", batchSize, itemsCnt, elapsed,
+                    meter.perOp(itemsCnt));
+        }
+    }
+
+    private static long measureHandOff(Examples.Stack<Integer> queue, int itemsCnt, int batchSize)
+            throws InterruptedException {
+        Thread producer = new Thread(ResourceMeter.metered(() -> {
+            try {
+                if (batchSize == 1) {
+                    for (int i = 0; i < itemsCnt; i++) {
+                        queue.push(i);
+                    }
+                    return;
+                }
+
+                List<Integer> batch = new ArrayList<>(batchSize);
+                for (int i = 0; i < itemsCnt; i++) {
+                    batch.add(i);
+                    if (batch.size() == batchSize) {
+                        queue.pushAll(batch);
+                        batch.clear();
+                    }
+                }
+                queue.pushAll(batch);
+            } catch (InterruptedException e) {
+                currentThread().interrupt();
+            }
+        }));
+
+        Thread consumer = new Thread(ResourceMeter.metered(() -> {
+            try {
+                if (batchSize == 1) {
+                    for (int i = 0; i < itemsCnt; i++) {
+                        queue.pop();
+                    }
+                    return;
+                }
+
+                List<Integer> batch = new ArrayList<>(batchSize);
+                int received = 0;
+                while (received < itemsCnt) {
+                    received += queue.drainTo(batch, batchSize);
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                currentThread().interrupt();
+            }
+        }));
+
+        long start = System.nanoTime();
+        producer.start();
+        consumer.start();
+        producer.join();
+        consumer.join();
+
+        return (System.nanoTime() - start) / 1000000; // milliseconds
+    }
+
+    // Runs the blocking pop & blocking push scenarios for all stacks in parallel.
+    // Instead of sleeping, each scenario moves on as soon as its threads are parked inside the stack.
+    public static void testQueues(List<Supplier<Examples.Stack<Integer>>> queueSuppliers)
+            throws InterruptedException {
+        System.out.println("\nTesting blocking pop & push for all stacks...");
+        long start = System.nanoTime();
+
+        ExecutorService svc = Executors.newCachedThreadPool();
+        List<Future<String>> results = new ArrayList<>();
+        for (Supplier<Examples.Stack<Integer>> queueSupplier : queueSuppliers) {
+            results.add(svc.submit(() -> testBlockingPop(queueSupplier)));
+            results.add(svc.submit(() -> testBlockingPush(queueSupplier)));
+        }
+
+        for (Future<String> result : results) {
+            try {
+                System.out.println(result.get());
+            } catch (ExecutionException e) {
+                System.out.println("\tScenario failed: " + e.getCause());
+            }
+        }
+        svc.shutdown();
+
+        System.out.printf("Finished in %dms\n", (System.nanoTime() - start) / 1000000);
+    }
+
+    public static String testBlockingPop(Supplier<Examples.Stack<Integer>> queueSupplier)
+            throws InterruptedException {
+        Examples.Stack<Integer> queue = queueSupplier.get();
+
+        return testBlocking(queue.getClass().getName() + " - blocking pop", queue::pop, () -> queue.push(1));
+    }
+
+    public static String testBlockingPush(Supplier<Examples.Stack<Integer>> queueSupplier)
+            throws InterruptedException {
+        Examples.Stack<Integer> queue = queueSupplier.get();
+        for (int i = 0; i < queue.getBound(); i++) {
+            queue.push(1);
+        }
+
+        return testBlocking(queue.getClass().getName() + " - blocking push", () -> queue.push(1), queue::pop);
+    }
+
+    private interface BlockingAction {
+        void run() throws InterruptedException;
+    }
+
+    // Starts two threads executing the blocking action & waits until both are parked.
+    // Then starts two threads executing the unblocking action, which should release the first two.
+    // The scenarios run in parallel, so every action meters its own thread rather than all of them.
+    private static String testBlocking(String name, BlockingAction blocking, BlockingAction unblocking)
+            throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(4);
+        List<ResourceMeter> meters = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> blocked = Arrays.asList(startAction(blocking, done, meters), startAction(blocking, done, meters));
+
+        long start = System.nanoTime();
+        if (!awaitWaiting(blocked, 5, TimeUnit.SECONDS)) {
+            blocked.forEach(Thread::interrupt);
+            return "\t" + name + " - FAILED, threads didn't block";
+        }
+        long blockedAfter = (System.nanoTime() - start) / 1000; // microseconds
+
+        startAction(unblocking, done, meters);
+        startAction(unblocking, done, meters);
+        if (!done.await(5, TimeUnit.SECONDS)) {
+            blocked.forEach(Thread::interrupt);
+            return "\t" + name + " - FAILED, blocked threads weren't released";
+        }
+        long releasedAfter = (System.nanoTime() - start) / 1000; // microseconds
+
+        long allocated = 0;
+        long cpuNanos = 0;
+        for (ResourceMeter meter : meters) {
+            allocated += meter.getAllocatedBytes();
+            cpuNanos += meter.getCpuNanos();
+        }
+        return String.format("\t%s - threads blocked after %dus, released after %dus, %.1f B/op, %.0f CPU-ns/op",
+                name, blockedAfter, releasedAfter, allocated / 4.0, cpuNanos / 4.0);
+    }
+
+    private static Thread startAction(BlockingAction action, CountDownLatch done, List<ResourceMeter> meters) {
+        Thread t = new Thread(() -> {
+            try {
+                ResourceMeter meter = ResourceMeter.startCurrentThread();
+                action.run();
+                meters.add(meter.stop());
+                done.countDown();
+            } catch (InterruptedException e) {
+                currentThread().interrupt();
+            }
+        });
+        t.setDaemon(true);
+        t.start();
+
+        return t;
+    }
+
+    // Polls the threads' state until all of them are parked. Returns false if one of them finished instead (it
+    // didn't block) or the timeout elapsed.
+    private static boolean awaitWaiting(List<Thread> threads, long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Thread t : threads) {
+            while (true) {
+                State state = t.getState();
+                if (state == State.WAITING || state == State.TIMED_WAITING)
+                    break;
+
+                if (state == State.TERMINATED || System.nanoTime() > deadline)
+                    return false;
+
+                Thread.yield();
+            }
+        }
+
+        return true;
+    }
+}
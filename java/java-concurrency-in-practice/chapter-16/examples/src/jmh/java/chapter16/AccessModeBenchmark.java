@@ -0,0 +1,60 @@
+package chapter16;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Cost of publishing & checking the flag with each VarHandle access mode, while the other side runs concurrently -
+// the reader keeps missing the cache line the writer keeps invalidating, which is the case the modes differ in.
+// The uncontended read is the baseline, where every mode compiles down to a plain load on x86.
+// Run via "gradle :chapter-16:jmh -PjmhIncludes=AccessMode".
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class AccessModeBenchmark {
+    public enum AccessMode {
+        RELEASE_ACQUIRE(Examples.ReleaseAcquireSynchronization::new),
+        OPAQUE(Examples.OpaqueSynchronization::new),
+        VOLATILE(Examples.VolatileSynchronization::new);
+
+        private final Supplier<Examples.AccessModeSynchronization> supplier;
+
+        AccessMode(Supplier<Examples.AccessModeSynchronization> supplier) {
+            this.supplier = supplier;
+        }
+    }
+
+    @Param
+    private AccessMode mode;
+
+    private Examples.AccessModeSynchronization cls;
+
+    @Setup
+    public void setUp() {
+        cls = mode.supplier.get();
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public void publish() {
+        cls.publish();
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public boolean read() {
+        return cls.isPublished();
+    }
+
+    @Benchmark
+    @Group("uncontended")
+    public boolean uncontendedRead() {
+        return cls.isPublished();
+    }
+}
@@ -0,0 +1,312 @@
+package chapter16;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+public class Examples {
+    public interface Synchronization {
+        void mutateState();
+        void readState();
+
+        // System.nanoTime() right before the publishing write, 0 until then. A plain field, so reading it doesn't add
+        // synchronization of its own - it's only meant to be read once the writer is done (e.g. after joining it).
+        long getPublishedAtNanos();
+    }
+
+    public static class UnsynchronizedExample implements Synchronization {
+        private boolean isReady = false;
+        private long publishedAtNanos;
+
+        public void mutateState() {
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            publishedAtNanos = System.nanoTime();
+            isReady = true;
+        }
+
+        public long getPublishedAtNanos() {
+            return publishedAtNanos;
+        }
+
+        public void readState() {
+            while (!isReady) {}
+        }
+    }
+
+    public static class PiggybackedSynchronization implements Synchronization {
+        private boolean isReady = false;
+        private final BlockingQueue<Integer> queue = new LinkedBlockingQueue<>();
+        private long publishedAtNanos;
+
+        public void mutateState() {
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            publishedAtNanos = System.nanoTime();
+            isReady = true;
+            queue.add(1);
+        }
+
+        public long getPublishedAtNanos() {
+            return publishedAtNanos;
+        }
+
+        public void readState() {
+            // There is no synchronization whatsoever on isReady and yet, this code is thread-safe.
+            // The reason is that we are "piggybacking" the synchronization provided by the blocking queue.
+            //
+            // Java Memory Model details:
+            // 1. "Program execution rule" -> any action in a single thread "happens-before" any subsequent action in the same thread
+            // 2. "Monitor lock rule" -> an unlock "happens-before" all previous locks on the same monitor
+            // 3. "Transitivity" -> If A "happens-before" B, B "happens-before" C, then A "happens-before" C
+            //
+            // The isReady mutation "happens-before" the push to the queue (via #1).
+            // The pop from queue "happens-before" the push to the queuie (via #2).
+            // Therefore, the isReady mutation "happens-before" the pop from the queue (via #3)
+            while (!isReady) {
+                if (!queue.isEmpty()) {
+                    try {
+                        queue.take();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }
+    }
+
+    // Same piggybacking principle, but on a cell which is published exactly once instead of a queue.
+    // Publishing allocates nothing & the reader parks instead of spinning until it gets unparked by the writer.
+    public static class PublicationCellSynchronization implements Synchronization {
+        private boolean isReady = false;
+        private final PublicationCell<Boolean> cell = new PublicationCell<>();
+        private long publishedAtNanos;
+
+        public void mutateState() {
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            // The isReady mutation "happens-before" the release-write of the cell's value (via program order).
+            // The release-write "happens-before" the acquire-read of the same value in await().
+            publishedAtNanos = System.nanoTime();
+            isReady = true;
+            cell.set(Boolean.TRUE);
+        }
+
+        public long getPublishedAtNanos() {
+            return publishedAtNanos;
+        }
+
+        public void readState() {
+            try {
+                cell.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            while (!isReady) {}
+        }
+    }
+
+    // A value which can be set only once. Readers can wait for it to be set.
+    // The value is published with release semantics & read with acquire semantics, so everything the writer did
+    // before set() is visible to readers after they observe the value.
+    public static class PublicationCell<T> {
+        private static final VarHandle VALUE;
+        private static final VarHandle WAITERS;
+        private static final Waiter PUBLISHED = new Waiter(null);
+
+        static {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                VALUE = lookup.findVarHandle(PublicationCell.class, "value", Object.class);
+                WAITERS = lookup.findVarHandle(PublicationCell.class, "waiters", Waiter.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private Object value;
+
+        // Stack of parked readers, replaced with PUBLISHED once the value is set
+        private Waiter waiters;
+
+        private static class Waiter {
+            private final Thread thread;
+            private Waiter next;
+
+            Waiter(Thread thread) {
+                this.thread = thread;
+            }
+        }
+
+        // Returns false if the value was already set
+        public boolean set(T v) {
+            Objects.requireNonNull(v);
+            if (!VALUE.compareAndSet(this, null, v))
+                return false;
+
+            Waiter w = (Waiter) WAITERS.getAndSet(this, PUBLISHED);
+            for (; w != null; w = w.next) {
+                LockSupport.unpark(w.thread);
+            }
+
+            return true;
+        }
+
+        // Returns null if the value isn't set yet
+        @SuppressWarnings("unchecked")
+        public T get() {
+            return (T) VALUE.getAcquire(this);
+        }
+
+        public T await() throws InterruptedException {
+            return awaitNanos(false, 0);
+        }
+
+        // Returns null if the timeout expired before the value got set
+        public T await(long timeout, TimeUnit unit) throws InterruptedException {
+            return awaitNanos(true, unit.toNanos(timeout));
+        }
+
+        private T awaitNanos(boolean timed, long timeoutNanos) throws InterruptedException {
+            T v = get();
+            if (v != null)
+                return v;
+
+            // Only readers which actually have to park allocate a node
+            Waiter node = new Waiter(Thread.currentThread());
+            while (true) {
+                Waiter head = (Waiter) WAITERS.getAcquire(this);
+                if (head == PUBLISHED)
+                    break;
+
+                node.next = head;
+                if (WAITERS.compareAndSet(this, head, node))
+                    break;
+            }
+
+            long deadline = System.nanoTime() + timeoutNanos;
+            while ((v = get()) == null) {
+                if (Thread.interrupted())
+                    throw new InterruptedException();
+
+                if (!timed) {
+                    LockSupport.park(this);
+                } else {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0)
+                        return null;
+
+                    LockSupport.parkNanos(this, remaining);
+                }
+            }
+
+            return v;
+        }
+    }
+
+    // Publishes isReady using the VarHandle access mode chosen by the subclass.
+    // number is written before the flag with a plain write - whether the reader is guaranteed to see it
+    // depends on the ordering guarantees of the access mode.
+    public static abstract class AccessModeSynchronization implements Synchronization {
+        protected static final VarHandle IS_READY;
+
+        static {
+            try {
+                IS_READY = MethodHandles.lookup()
+                        .findVarHandle(AccessModeSynchronization.class, "isReady", boolean.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private boolean isReady = false;
+        private int number = 0;
+        private long publishedAtNanos;
+
+        public void mutateState() {
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            publishedAtNanos = System.nanoTime();
+            number = 42;
+            publish();
+        }
+
+        public long getPublishedAtNanos() {
+            return publishedAtNanos;
+        }
+
+        public void readState() {
+            while (!isPublished()) {}
+
+            if (number != 42) {
+                System.out.println("\tGot the wrong number! Expected: 42, Actual: " + number);
+            }
+        }
+
+        public abstract void publish();
+        public abstract boolean isPublished();
+    }
+
+    // Weakest mode which is correct for publishing data.
+    // The release-write can't be reordered with writes before it & the acquire-read can't be reordered with reads after it.
+    // Hence, everything written before setRelease is visible after getAcquire observes the write.
+    public static class ReleaseAcquireSynchronization extends AccessModeSynchronization {
+        public void publish() {
+            IS_READY.setRelease(this, true);
+        }
+
+        public boolean isPublished() {
+            return (boolean) IS_READY.getAcquire(this);
+        }
+    }
+
+    // Opaque only guarantees that the reader eventually sees the write to the flag itself (the loop can't be hoisted).
+    // There are no ordering guarantees for other variables, so number might still be stale.
+    // That's fine for a stop flag, but not for publishing data.
+    public static class OpaqueSynchronization extends AccessModeSynchronization {
+        public void publish() {
+            IS_READY.setOpaque(this, true);
+        }
+
+        public boolean isPublished() {
+            return (boolean) IS_READY.getOpaque(this);
+        }
+    }
+
+    // Same as declaring isReady volatile. Sequentially consistent - the volatile write is followed by a full fence,
+    // which is more than publication needs.
+    public static class VolatileSynchronization extends AccessModeSynchronization {
+        public void publish() {
+            IS_READY.setVolatile(this, true);
+        }
+
+        public boolean isPublished() {
+            return (boolean) IS_READY.getVolatile(this);
+        }
+    }
+}
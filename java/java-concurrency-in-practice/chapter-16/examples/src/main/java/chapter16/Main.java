@@ -0,0 +1,173 @@
+package chapter16;
+
+import bench.ResourceMeter;
+
+import java.util.Arrays;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+public class Main extends Thread {
+    private static boolean isStopped = false;
+
+    public static void main(String[] args) throws InterruptedException, BrokenBarrierException {
+        testSynchronization(new Examples.UnsynchronizedExample(), 5);
+        testSynchronization(new Examples.PiggybackedSynchronization(), 6);
+        testSynchronization(new Examples.PublicationCellSynchronization(), 6);
+
+        measurePublication(Examples.PiggybackedSynchronization::new, 5);
+        measurePublication(Examples.PublicationCellSynchronization::new, 5);
+
+        testSynchronization(new Examples.ReleaseAcquireSynchronization(), 3);
+        testSynchronization(new Examples.OpaqueSynchronization(), 3);
+        testSynchronization(new Examples.VolatileSynchronization(), 3);
+
+        for (int i = 0; i < 3; i++) {
+            System.out.println("\nMeasuring access modes, round " + (i+1) + "...");
+            measureAccessMode(new Examples.ReleaseAcquireSynchronization(), 100_000_000);
+            measureAccessMode(new Examples.OpaqueSynchronization(), 100_000_000);
+            measureAccessMode(new Examples.VolatileSynchronization(), 100_000_000);
+        }
+    }
+
+    // Measures the cost of checking the flag in a hot loop while another thread keeps publishing it, along with the
+    // bytes allocated & the CPU time used by each side - none of the access modes should allocate.
+    // With the writer running, the reader keeps missing the cache line the writer invalidates, which is where the modes
+    // differ. On a single core the two only time-share, so the numbers there are closer to the uncontended case.
+    // The first rounds include JIT warm-up, so only the last ones are representative.
+    // See AccessModeBenchmark (src/jmh) for the JMH version.
+    private static void measureAccessMode(Examples.AccessModeSynchronization cls, int iterations)
+            throws InterruptedException {
+        AtomicBoolean isReading = new AtomicBoolean(true);
+        long[] publishes = new long[1];
+        long[] publishNanos = new long[1];
+        ResourceMeter[] publishMeter = new ResourceMeter[1];
+        CountDownLatch writerStarted = new CountDownLatch(1);
+        Thread writer = new Thread(() -> {
+            ResourceMeter meter = ResourceMeter.startCurrentThread();
+            long start = System.nanoTime();
+            writerStarted.countDown();
+            long cnt = 0;
+            while (isReading.getOpaque()) {
+                cls.publish();
+                cnt++;
+            }
+            publishNanos[0] = System.nanoTime() - start;
+            publishMeter[0] = meter.stop();
+            publishes[0] = cnt;
+        });
+        writer.start();
+        writerStarted.await();
+
+        int seen = 0;
+        ResourceMeter readMeter = ResourceMeter.startCurrentThread();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            if (cls.isPublished()) {
+                seen++;
+            }
+        }
+        long readNanos = System.nanoTime() - start;
+        readMeter.stop();
+        isReading.set(false);
+        writer.join();
+
+        // sub-nanosecond costs, hence more decimals than ResourceMeter.perOp()
+        System.out.printf("\t%s - read = %.2fns/op (%.2f B/op, %.2f CPU-ns/op) (%d reads saw the flag), " +
+                        "concurrent publish = %.2fns/op (%.2f B/op, %.2f CPU-ns/op)\n",
+                cls.getClass().getName(),
+                (double) readNanos / iterations, readMeter.getAllocatedBytesPerOp(iterations),
+                readMeter.getCpuNanosPerOp(iterations), seen,
+                (double) publishNanos[0] / publishes[0], publishMeter[0].getAllocatedBytesPerOp(publishes[0]),
+                publishMeter[0].getCpuNanosPerOp(publishes[0]));
+    }
+
+    // Measures how long it takes for the reader to notice the publication, from the writer's publishing write on,
+    // and the bytes allocated & the CPU time used by each side for one publication - a spinning reader burns CPU for
+    // as long as it waits, a parked one doesn't.
+    private static void measurePublication(Supplier<Examples.Synchronization> supplier, int attempts)
+            throws InterruptedException {
+        long[] latencies = new long[attempts];
+        long[] writerAllocated = new long[attempts];
+        long[] writerCpuNanos = new long[attempts];
+        long[] readerAllocated = new long[attempts];
+        long[] readerCpuNanos = new long[attempts];
+        int samplesCnt = 0;
+        int rejectedCnt = 0;
+        for (int i = 0; i < attempts; i++) {
+            Examples.Synchronization cls = supplier.get();
+            long[] readAt = new long[1];
+            ResourceMeter[] meters = new ResourceMeter[2];
+
+            Thread reader = new Thread(() -> {
+                ResourceMeter meter = ResourceMeter.startCurrentThread();
+                cls.readState();
+                readAt[0] = System.nanoTime();
+                meters[0] = meter.stop();
+            });
+            Thread writer = new Thread(() -> {
+                ResourceMeter meter = ResourceMeter.startCurrentThread();
+                cls.mutateState();
+                meters[1] = meter.stop();
+            });
+
+            reader.start();
+            writer.start();
+            writer.join();
+            reader.join();
+
+            // the writer stamps right before its publishing write - the reader can't have seen it any earlier,
+            // so a negative latency means the sample is broken (e.g. the writer was interrupted)
+            long latency = readAt[0] - cls.getPublishedAtNanos();
+            if (cls.getPublishedAtNanos() == 0 || latency < 0) {
+                rejectedCnt++;
+                continue;
+            }
+            latencies[samplesCnt] = latency;
+            readerAllocated[samplesCnt] = meters[0].getAllocatedBytes();
+            readerCpuNanos[samplesCnt] = meters[0].getCpuNanos();
+            writerAllocated[samplesCnt] = meters[1].getAllocatedBytes();
+            writerCpuNanos[samplesCnt] = meters[1].getCpuNanos();
+            samplesCnt++;
+        }
+
+        String name = supplier.get().getClass().getName();
+        if (samplesCnt == 0) {
+            System.out.println(name + " - no valid samples, " + rejectedCnt + " rejected");
+            return;
+        }
+
+        // medians, so that the one-off class loading & linking in the first attempt doesn't skew the results
+        System.out.println(name + " - median wake-up latency = " + median(latencies, samplesCnt) / 1000 + "us" +
+                (rejectedCnt > 0 ? " (" + rejectedCnt + " samples rejected)" : "") +
+                "\n\twriter per publication = " + median(writerAllocated, samplesCnt) + " B, " +
+                median(writerCpuNanos, samplesCnt) / 1000 + " CPU-us" +
+                "\n\treader per publication = " + median(readerAllocated, samplesCnt) + " B, " +
+                median(readerCpuNanos, samplesCnt) / 1000 + " CPU-us");
+    }
+
+    private static long median(long[] samples, int samplesCnt) {
+        Arrays.sort(samples, 0, samplesCnt);
+        return samples[samplesCnt / 2];
+    }
+
+    private static void testSynchronization(Examples.Synchronization cls, int attempts) throws InterruptedException {
+        System.out.println("Testing " + cls.getClass().getName() + "...");
+        for (int i = 0; i < attempts; i++) {
+            System.out.println("\tExecuting attempt " + (i+1) + "...");
+            ExecutorService exec = Executors.newCachedThreadPool();
+            exec.execute(cls::mutateState);
+            exec.execute(cls::readState);
+
+            exec.shutdown();
+            if (!exec.awaitTermination(5, TimeUnit.SECONDS)) {
+                System.out.println("\tCouldn't terminate thread normally, a thread-safety violation is present. " +
+                        "Abrupt program termination required...");
+                return;
+            }
+        }
+
+        System.out.println("\tTest finished. No thread-safety violations found!");
+    }
+
+}